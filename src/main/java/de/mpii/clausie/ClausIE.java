@@ -11,7 +11,6 @@ import edu.stanford.nlp.process.PTBTokenizer;
 import edu.stanford.nlp.process.TokenizerFactory;
 import edu.stanford.nlp.semgraph.SemanticGraph;
 import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations;
-import edu.stanford.nlp.semgraph.SemanticGraphFactory;
 import edu.stanford.nlp.trees.Tree;
 import edu.stanford.nlp.trees.TreeCoreAnnotations;
 import edu.stanford.nlp.util.CoreMap;
@@ -22,15 +21,46 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
-
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extracts propositions out of a single sentence.
+ * <p>
+ * A {@code ClausIE} instance holds the state of the sentence being processed and is therefore
+ * neither thread-safe nor reentrant. Use {@link ClausIEEngine} to process several sentences
+ * concurrently.
+ */
 public class ClausIE {
 
     private static final Logger logger = LoggerFactory.getLogger(ClausIE.class);
 
+    /**
+     * Location of the default parser model.
+     */
+    public static final String DEFAULT_MODEL = "edu/stanford/nlp/models/lexparser/englishPCFG.ser.gz";
+
     Tree depTree;
     SemanticGraph semanticGraph;
+
+    /**
+     * Unmodified overlay of {@link #semanticGraph}, shared by the constituents that do not
+     * change the graph (see {@link #graph()}).
+     */
+    private SemanticGraphOverlay graph;
     List<Clause> clauses = new ArrayList<>();
 
     final List<Proposition> propositions = new ArrayList<>();
@@ -47,6 +77,19 @@ public class ClausIE {
      */
     boolean xcomp;
 
+    /**
+     * Statistics of the time spent in each stage, or {@code null} (see
+     * {@link ClausIEEngine#setStageTimes(StageTimes)}).
+     */
+    StageTimes stageTimes;
+
+    /**
+     * Names of the options and the parser model acquired from {@link ModelRegistry}, if any (see
+     * {@link #shared()}).
+     */
+    private String sharedOptions;
+    private String sharedModel;
+
     public ClausIE(Options options) {
         this.options = options;
     }
@@ -55,6 +98,19 @@ public class ClausIE {
         this(new Options());
     }
 
+    /**
+     * Returns an instance with the default options and, once {@link #initParser()} is called,
+     * the default parser model, both shared with all other instances created by this method and
+     * with {@link ClausIEEngine#shared(String, String)} (see {@link ModelRegistry}). The shared
+     * options must not be modified. Call {@link #close()} when the instance is not needed
+     * anymore.
+     */
+    public static ClausIE shared() throws IOException {
+        ClausIE clausIE = new ClausIE(ModelRegistry.acquireOptions(ModelRegistry.DEFAULT_OPTIONS));
+        clausIE.sharedOptions = ModelRegistry.DEFAULT_OPTIONS;
+        return clausIE;
+    }
+
     public ClausIE(LexicalizedParser lp,
                    TokenizerFactory<CoreLabel> tokenizerFactory,
                    LexicalizedParserQuery lpq) {
@@ -71,8 +127,24 @@ public class ClausIE {
         return options;
     }
 
+    /**
+     * Releases the options and the parser model if this instance acquired them from
+     * {@link ModelRegistry} (see {@link #shared()}). The instance must not be used afterwards.
+     */
+    public void close() {
+        if (sharedModel != null) {
+            ModelRegistry.releaseParser(sharedModel);
+            sharedModel = null;
+        }
+        if (sharedOptions != null) {
+            ModelRegistry.releaseOptions(sharedOptions);
+            sharedOptions = null;
+        }
+    }
+
     public void clear() {
         semanticGraph = null;
+        graph = null;
         depTree = null;
         clauses.clear();
         propositions.clear();
@@ -82,10 +154,17 @@ public class ClausIE {
     // ---------------------------------------------------------------------------------
 
     /**
-     * Initializes the Stanford parser.
+     * Initializes the Stanford parser. For an instance created by {@link #shared()}, the parser
+     * model is shared with other instances through {@link ModelRegistry} until {@link #close()}
+     * is called.
      */
     public void initParser() {
-        lp = LexicalizedParser.loadModel("edu/stanford/nlp/models/lexparser/englishPCFG.ser.gz");
+        if (sharedOptions == null) {
+            lp = LexicalizedParser.loadModel(DEFAULT_MODEL);
+        } else if (sharedModel == null) {
+            lp = ModelRegistry.acquireParser(DEFAULT_MODEL);
+            sharedModel = DEFAULT_MODEL;
+        }
         tokenizerFactory = PTBTokenizer.factory(new CoreLabelTokenFactory(), "");
         lpq = lp.parserQuery();
     }
@@ -94,12 +173,75 @@ public class ClausIE {
      * Clears and parses a new sentence.
      */
     public void parse(String sentence) {
+        parse(tokenize(sentence));
+    }
+
+    /**
+     * Splits a sentence into tokens.
+     */
+    List<CoreLabel> tokenize(String sentence) {
+        long start = System.nanoTime();
+        List<CoreLabel> tokens = tokenizerFactory.getTokenizer(new StringReader(sentence)).tokenize();
+        if (stageTimes != null) {
+            stageTimes.add(StageTimes.Stage.TOKENIZATION, System.nanoTime() - start);
+        }
+        return tokens;
+    }
+
+    /**
+     * Clears and parses a new sentence that has already been tokenized, e.g., by an upstream
+     * pipeline. The tokens are passed to the parser as they are, so that their character offsets
+     * are kept; tokens with a part-of-speech tag constrain the parser to that tag.
+     */
+    public void parse(List<CoreLabel> tokenizedSentence) {
+        process(PcfgDependencyProvider.parse(lpq, tokenizedSentence, stageTimes));
+    }
+
+    /**
+     * Clears and parses a new sentence given as words and, optionally, their part-of-speech
+     * tags (see {@link #toTokens(List, List)}).
+     */
+    public void parse(List<String> words,
+                      List<String> tags) {
+        parse(toTokens(words, tags));
+    }
+
+    /**
+     * Converts words into tokens for parsing. If {@code tags} is not {@code null}, each token
+     * with a tag other than {@code null} is constrained to that tag. The character offsets of
+     * the tokens refer to the words separated by single spaces.
+     */
+    public static List<CoreLabel> toTokens(List<String> words,
+                                           List<String> tags) {
+        if (tags != null && tags.size() != words.size()) {
+            throw new IllegalArgumentException("Got " + words.size() + " words, but " + tags.size() + " tags");
+        }
+        List<CoreLabel> tokens = new ArrayList<>(words.size());
+        int offset = 0;
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            CoreLabel token = new CoreLabel();
+            token.setWord(word);
+            token.setValue(word);
+            token.setOriginalText(word);
+            token.setBeginPosition(offset);
+            token.setEndPosition(offset + word.length());
+            if (tags != null && tags.get(i) != null) {
+                token.setTag(tags.get(i));
+            }
+            tokens.add(token);
+            offset += word.length() + 1;
+        }
+        return tokens;
+    }
+
+    /**
+     * Clears and takes a new sentence that has been parsed by a {@link DependencyProvider}.
+     */
+    public void process(DependencyParse parse) {
         clear();
-        List<CoreLabel> tokenizedSentence = tokenizerFactory.getTokenizer(new StringReader(sentence)).tokenize();
-        lpq.parse(tokenizedSentence); // what about the confidence?
-        depTree = lpq.getBestParse();
-        // use uncollapsed dependencies to facilitate tree creation
-        semanticGraph = SemanticGraphFactory.generateUncollapsedDependencies(depTree);
+        depTree = parse.getTree();
+        semanticGraph = parse.getSemanticGraph();
     }
 
     public void process(CoreMap sentence) {
@@ -110,6 +252,13 @@ public class ClausIE {
         );
     }
 
+    /**
+     * Returns the PCFG score of the last parse.
+     */
+    public double getPCFGScore() {
+        return lpq.getPCFGScore();
+    }
+
     /**
      * Returns the constituent tree for the sentence.
      */
@@ -127,11 +276,26 @@ public class ClausIE {
     // -- clause detection
     // ------------------------------------------------------------------------
 
+    /**
+     * Returns an overlay of the dependency graph of the sentence without changes. The overlay is
+     * shared and must not be modified; use {@link SemanticGraphOverlay#copy()} to modify it.
+     */
+    SemanticGraphOverlay graph() {
+        if (graph == null || graph.getBase() != semanticGraph) {
+            graph = new SemanticGraphOverlay(semanticGraph);
+        }
+        return graph;
+    }
+
     /**
      * Detects clauses in the sentence.
      */
     public void detectClauses() {
+        long start = System.nanoTime();
         ClauseDetector.detectClauses(this);
+        if (stageTimes != null) {
+            stageTimes.add(StageTimes.Stage.CLAUSE_DETECTION, System.nanoTime() - start);
+        }
     }
 
     /**
@@ -148,6 +312,7 @@ public class ClausIE {
      * Generates propositions from the clauses in the sentence.
      */
     public void generatePropositions() {
+        long start = System.nanoTime();
         propositions.clear();
 
         // holds alternative options for each constituents (obtained by
@@ -178,10 +343,16 @@ public class ClausIE {
                         // Otherwise we get duplicate propositions.
                         && !clause.xcomps.contains(i)
                         && ((i == clause.verb && options.processCcAllVerbs) || (i != clause.verb && options.processCcNonVerbs))) {
+                    long ccStart = System.nanoTime();
                     alternatives = ProcessConjunctions.processCC(depTree, clause, constituent, i);
+                    if (stageTimes != null) {
+                        stageTimes.add(StageTimes.Stage.CONJUNCTIONS, System.nanoTime() - ccStart);
+                    }
                 } else if (!(xcomp && clause.subject == i) && clause.xcomps.contains(i)) {
+                    long xcompStart = System.nanoTime();
                     alternatives = new ArrayList<>();
                     ClausIE xclausIE = new ClausIE(options);
+                    xclausIE.stageTimes = stageTimes;
                     xclausIE.semanticGraph = semanticGraph;
                     xclausIE.depTree = depTree;
                     xclausIE.xcomp = true;
@@ -202,6 +373,10 @@ public class ClausIE {
                         }
                         alternatives.add(new TextConstituent(sb.toString(), constituent.type));
                     }
+                    // nested xcomps are part of the time of the outermost one
+                    if (stageTimes != null && !xcomp) {
+                        stageTimes.add(StageTimes.Stage.XCOMPS, System.nanoTime() - xcompStart);
+                    }
                 } else {
                     alternatives = new ArrayList<>(1);
                     alternatives.add(constituent);
@@ -299,6 +474,10 @@ public class ClausIE {
                 }
             }.run();
         }
+        // the propositions of xcomps are part of the time of the enclosing sentence
+        if (stageTimes != null && !xcomp) {
+            stageTimes.add(StageTimes.Stage.PROPOSITIONS, System.nanoTime() - start);
+        }
     }
 
     public List<Proposition> getPropositions() {
@@ -308,6 +487,13 @@ public class ClausIE {
     // -- command-line interface
     // ------------------------------------------------------------------
 
+    /**
+     * Number of sentences per worker thread that may be in flight in multi-threaded mode.
+     * Results are written in input order, so this bounds the number of finished results held back
+     * while an earlier sentence is still being processed.
+     */
+    private static final int SENTENCES_IN_FLIGHT_PER_THREAD = 4;
+
     public static void main(String[] args) throws IOException {
         OptionParser optionParser = new OptionParser();
         optionParser
@@ -318,14 +504,35 @@ public class ClausIE {
                 .accepts(
                         "l",
                         "if set, sentence identifier is read from input file (with lines of form: <id>\\t<sentence>)");
+        optionParser.accepts("conllu", "input is in CoNLL-U format and is not parsed again (see ConllUReader)");
+        optionParser.accepts("doc", "input is running text that is split into sentences, one document per paragraph or, if -f is a directory, per file (see DocumentReader)");
         optionParser
                 .accepts("o",
                         "output file (if absent, ClausIE writes to stdout)")
                 .withRequiredArg().describedAs("file").ofType(String.class);
         optionParser.accepts("c", "configuration file").withRequiredArg()
                 .describedAs("file").ofType(String.class);
+        optionParser.accepts("provider", "class of the dependency provider (see DependencyProvider; default: PCFG parser)")
+                .withRequiredArg().describedAs("class").ofType(String.class);
+        optionParser.accepts("cache", "file that stores the parses of earlier runs (see ParseCache)")
+                .withRequiredArg().describedAs("file").ofType(String.class);
+        optionParser.accepts("resultcache", "keep the results of up to the given number of sentences in memory and reuse them for repeated sentences (see ResultCache)")
+                .withRequiredArg().describedAs("sentences").ofType(Integer.class);
+        optionParser.accepts("t", "number of worker threads (output order is preserved)")
+                .withRequiredArg().describedAs("threads").ofType(Integer.class).defaultsTo(1);
+        optionParser.accepts("lpt", "with -t, schedule each block of the given number of sentences longest first")
+                .withRequiredArg().describedAs("sentences").ofType(Integer.class);
+        optionParser.accepts("timeout", "maximum time to parse a sentence; sentences that take longer are written as <id>\\ttimeout")
+                .withRequiredArg().describedAs("ms").ofType(Long.class);
+        optionParser.accepts("memory", "PCFG chart memory per worker thread; longer sentences whose charts do not fit are written as <id>\\ttoo_long (see PcfgDependencyProvider)")
+                .withRequiredArg().describedAs("MB").ofType(Integer.class);
+        optionParser.accepts("server", "run as HTTP server on localhost (see ClausIEServer)")
+                .withRequiredArg().describedAs("port").ofType(Integer.class);
+        optionParser.accepts("stats", "measure the time of each stage of the pipeline and log it, and the PCFG chart memory, at the end (see StageTimes)");
         optionParser.accepts("v", "verbose output");
         optionParser.accepts("h", "print help");
+        optionParser.accepts("format", "output format: text, tsv or jsonl (see PropositionWriter.Format)")
+                .withRequiredArg().describedAs("format").ofType(String.class).defaultsTo("text");
         optionParser.accepts("s", "print sentence");
         optionParser.accepts("p", "print sentence confidence");
         OptionSet options;
@@ -341,100 +548,369 @@ public class ClausIE {
         if (options.has("h")) {
             optionParser.printHelpOn(System.out);
         }
+        int threads = (Integer) options.valueOf("t");
+        if (threads < 1) {
+            logger.error("Incorrect options: number of threads must be positive");
+            optionParser.printHelpOn(System.out);
+            return;
+        }
+        int blockSize = options.has("lpt") ? (Integer) options.valueOf("lpt") : 0;
+        if (options.has("lpt") && (blockSize < 1 || threads < 2)) {
+            logger.error("Incorrect options: -lpt requires a positive block size and -t with at least 2 threads");
+            optionParser.printHelpOn(System.out);
+            return;
+        }
+        PropositionWriter.Format format;
+        try {
+            format = PropositionWriter.Format.valueOf(((String) options.valueOf("format")).toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            logger.error("Incorrect options: unknown format '{}'", options.valueOf("format"));
+            optionParser.printHelpOn(System.out);
+            return;
+        }
+        if ((options.has("conllu") || options.has("doc")) && options.has("server")) {
+            logger.error("Incorrect options: -conllu and -doc cannot be used with -server");
+            optionParser.printHelpOn(System.out);
+            return;
+        }
+        if (options.has("conllu") && options.has("doc")) {
+            logger.error("Incorrect options: -conllu cannot be used with -doc");
+            optionParser.printHelpOn(System.out);
+            return;
+        }
+        if (options.has("cache") && options.has("conllu") && !options.has("provider")) {
+            logger.error("Incorrect options: -cache requires a parser, but -conllu input is not parsed");
+            optionParser.printHelpOn(System.out);
+            return;
+        }
+        int resultCacheSize = options.has("resultcache") ? (Integer) options.valueOf("resultcache") : 0;
+        if (options.has("resultcache") && resultCacheSize < 1) {
+            logger.error("Incorrect options: result cache size must be positive");
+            optionParser.printHelpOn(System.out);
+            return;
+        }
+        if (options.has("memory") && (options.has("provider") || options.has("conllu"))) {
+            logger.error("Incorrect options: -memory requires the PCFG parser");
+            optionParser.printHelpOn(System.out);
+            return;
+        }
+        int memory = options.has("memory") ? (Integer) options.valueOf("memory") : 0;
+        if (options.has("memory") && memory < 1) {
+            logger.error("Incorrect options: memory budget must be positive");
+            optionParser.printHelpOn(System.out);
+            return;
+        }
+        long timeout = options.has("timeout") ? (Long) options.valueOf("timeout") : 0;
+        if (timeout < 0) {
+            logger.error("Incorrect options: timeout must not be negative");
+            optionParser.printHelpOn(System.out);
+            return;
+        }
 
         // setup input and output
-        InputStream in = System.in;
+        Path inputPath = options.has("f") ? Paths.get((String) options.valueOf("f")) : null;
+        boolean inputDirectory = inputPath != null && options.has("doc") && Files.isDirectory(inputPath);
+        LineSource in = inputPath == null
+                ? LineSource.of(System.in)
+                : inputDirectory ? null : LineSource.open(inputPath);
         OutputStream out = System.out;
-        if (options.has("f")) {
-            in = new FileInputStream((String) options.valueOf("f"));
-        }
         if (options.has("o")) {
             out = new FileOutputStream((String) options.valueOf("o"));
         }
 
-        // is there an options file
-
-        // create a ClausIE instance and set options
-        ClausIE clausIE = options.has("c") ? new ClausIE(new Options((String) options.valueOf("c"))) : new ClausIE();
-        clausIE.initParser();
+        // create the engine; it is shared by all worker threads
+        DependencyProvider provider;
+        PcfgDependencyProvider pcfg = null;
+        if (options.has("provider")) {
+            try {
+                provider = Class.forName((String) options.valueOf("provider"))
+                        .asSubclass(DependencyProvider.class).getConstructor().newInstance();
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                logger.error("Unable to create dependency provider '{}': {}", options.valueOf("provider"), e.toString());
+                return;
+            }
+        } else if (options.has("conllu")) {
+            provider = null; // sentences are parsed already
+        } else {
+            pcfg = new PcfgDependencyProvider(LexicalizedParser.loadModel(DEFAULT_MODEL));
+            if (memory > 0) {
+                try {
+                    pcfg.setMemoryBudget(memory * 1_000_000L);
+                } catch (IllegalArgumentException e) {
+                    logger.error("Incorrect options: {}", e.getMessage());
+                    return;
+                }
+                logger.info("PCFG chart memory budget of {} MB per thread; sentences of more than {} tokens are skipped",
+                        memory, pcfg.getMaxLength());
+            }
+            provider = pcfg;
+        }
+        ParseCache cache = null;
+        if (options.has("cache")) {
+            cache = ParseCache.open(Paths.get((String) options.valueOf("cache")), provider);
+            provider = cache;
+        }
+        ClausIEEngine engine = new ClausIEEngine(
+                options.has("c") ? new Options((String) options.valueOf("c")) : new Options(),
+                provider
+        );
+        engine.setParseTimeout(timeout, TimeUnit.MILLISECONDS);
+        // the server reports the stage times on request
+        StageTimes stageTimes = options.has("stats") || options.has("server") ? new StageTimes() : null;
+        engine.setStageTimes(stageTimes);
+        if (resultCacheSize > 0) {
+            engine.setResultCache(new ResultCache(resultCacheSize));
+        }
         if (options.has("v")) {
-            clausIE.getOptions().print(out, "# ");
+            engine.getOptions().print(out, "# ");
         }
 
-        // run
-        DataInput din = new DataInputStream(in);
-        PrintStream dout = new PrintStream(out);
-        int lineNo = 1;
-        for (String ln = din.readLine(); ln != null; ln = din.readLine(), lineNo++) {
-            String line = ln.trim();
-            if (line.isEmpty() || line.startsWith("#"))
-                continue;
-            int sentenceId = lineNo;
-            if (options.has("l")) {
-                int tabIndex = line.indexOf('\t');
-                sentenceId = Integer.parseInt(line.substring(0, tabIndex));
-                line = line.substring(tabIndex + 1).trim();
+        // server mode; the server keeps running until the JVM is terminated
+        if (options.has("server")) {
+            ClausIEServer server = new ClausIEServer(engine, (Integer) options.valueOf("server"), threads);
+            Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+            server.start();
+            return;
+        }
+
+        // run; with several threads, sentences are processed concurrently and written in input
+        // order as soon as all preceding sentences are done
+        ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        LengthAwareScheduler scheduler = blockSize > 0
+                ? new LengthAwareScheduler(engine, executor, threads)
+                : null;
+        List<InputLine> block = new ArrayList<>();
+        Deque<InputLine> inFlight = new ArrayDeque<>();
+        int maxInFlight = scheduler != null ? blockSize : SENTENCES_IN_FLIGHT_PER_THREAD * threads;
+        SentenceReader reader = null;
+        if (options.has("conllu")) {
+            reader = new ConllUReader(in);
+        } else if (inputDirectory) {
+            List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> directory = Files.newDirectoryStream(inputPath, Files::isRegularFile)) {
+                directory.forEach(files::add);
             }
-            if (options.has("v")) {
-                dout.print("# Line ");
-                dout.print(lineNo);
-                if (options.has("l")) {
-                    dout.print(" (id ");
-                    dout.print(sentenceId);
-                    dout.print(")");
+            Collections.sort(files);
+            reader = DocumentReader.files(files);
+        } else if (options.has("doc")) {
+            reader = DocumentReader.paragraphs(in, options.has("l"));
+        }
+        PrintWriter dout = new PrintWriter(PropositionWriter.newBufferedWriter(out));
+        PropositionWriter writer = PropositionWriter.create(format, dout, options.has("p"));
+        // flush each sentence when reading from a terminal
+        boolean interactive = !options.has("f") && System.console() != null;
+        long start = System.nanoTime();
+        int sentences = 0;
+        try {
+            for (InputLine sentence = read(in, reader, options.has("l")); sentence != null;
+                 sentence = read(in, reader, options.has("l"))) {
+                sentences++;
+                if (executor == null) {
+                    print(dout, writer, interactive, options, engine, sentence, engine.extract(sentence.sentence));
+                    continue;
+                }
+                if (scheduler != null) {
+                    // blocks are submitted as a whole; keep up to one more block in flight
+                    block.add(sentence);
+                    if (block.size() < blockSize) {
+                        continue;
+                    }
+                    submit(scheduler, block, inFlight);
+                } else {
+                    InputSentence input = sentence.sentence;
+                    sentence.result = executor.submit(() -> engine.extract(input));
+                    inFlight.add(sentence);
+                }
+                while (inFlight.size() > maxInFlight) {
+                    InputLine next = inFlight.remove();
+                    print(dout, writer, interactive, options, engine, next, await(next.result));
                 }
-                dout.print(": ");
-                dout.print(line);
-                dout.println();
             }
-            clausIE.parse(line);
-            if (options.has("v")) {
-                dout.print("# Semantic graph: ");
-                dout.println(clausIE.getSemanticGraph().toFormattedString()
-                        .replaceAll("\n", "\n#                ").trim());
+            if (scheduler != null) {
+                submit(scheduler, block, inFlight);
             }
-            clausIE.detectClauses();
-            if (options.has("v")) {
-                dout.print("#   Detected ");
-                dout.print(clausIE.getClauses().size());
-                dout.println(" clause(s).");
-                for (Clause clause : clausIE.getClauses()) {
-                    dout.print("#   - ");
-                    dout.print(clause.toString(clausIE.options));
-                    dout.println();
-                }
+            while (!inFlight.isEmpty()) {
+                InputLine next = inFlight.remove();
+                print(dout, writer, interactive, options, engine, next, await(next.result));
             }
-            clausIE.generatePropositions();
-            // dout.print("\t");
-            if (options.has("s")) {
-                dout.print(line);
-                dout.println();
+            if (scheduler != null) {
+                logger.info(scheduler.getReport());
             }
-
-            // dout.print("\t");
-            // dout.println();
-            for (Proposition p : clausIE.getPropositions()) {
-                dout.print(sentenceId);
-                for (String c : p.constituents) {
-                    // TODO: correct escaping
-                    dout.print("\t\"");
-                    dout.print(c);
-                    dout.print("\"");
-                }
-                if (options.has("p")) {
-                    dout.print("\t");
-                    dout.print(clausIE.lpq.getPCFGScore());
+            double seconds = (System.nanoTime() - start) / 1e9;
+            logger.info(String.format("Processed %d sentences in %.1f s (%.1f sentences/s); %s",
+                    sentences, seconds, sentences / seconds, engine.getParseReport()));
+            if (stageTimes != null) {
+                logger.info(stageTimes.getReport());
+                if (pcfg != null) {
+                    logger.info(pcfg.getMemoryReport());
                 }
-                dout.println();
             }
+            if (cache != null) {
+                logger.info(cache.getReport());
+            }
+            if (engine.getResultCache() != null) {
+                logger.info(engine.getResultCache().getReport());
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            dout.flush();
+        }
+        if (dout.checkError()) {
+            throw new IOException("Unable to write output");
         }
 
         // shutdown
-        if (options.has("f")) {
+        if (cache != null) {
+            cache.close();
+        }
+        if (reader != null) {
+            reader.close();
+        } else if (options.has("f")) {
             in.close();
         }
         if (options.has("o")) {
             out.close();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * A sentence read by the command-line interface.
+     */
+    private static final class InputLine {
+        final int lineNo;
+        final InputSentence sentence;
+        Future<ExtractionResult> result;
+
+        InputLine(int lineNo, InputSentence sentence) {
+            this.lineNo = lineNo;
+            this.sentence = sentence;
+        }
+    }
+
+    /**
+     * Reads the next sentence, either from a sentence reader (if not {@code null}) or from the
+     * next line of input that is neither empty nor a comment. Returns {@code null} at the end of
+     * the input.
+     */
+    private static InputLine read(LineSource in,
+                                  SentenceReader reader,
+                                  boolean ids) throws IOException {
+        if (reader != null) {
+            InputSentence sentence = reader.next();
+            return sentence == null ? null : new InputLine(reader.getLineNumber(), sentence);
+        }
+        while (in.next()) {
+            if (in.isBlank() || in.isComment())
+                continue;
+            int lineNo = in.getLineNumber();
+            int sentenceId = lineNo;
+            String line;
+            if (ids) {
+                int tabIndex = in.indexOf('\t');
+                sentenceId = in.parseInt(0, tabIndex);
+                line = in.text(tabIndex + 1, in.length());
+            } else {
+                line = in.text(0, in.length());
+            }
+            return new InputLine(lineNo, new InputSentence(Integer.toString(sentenceId), line));
+        }
+        return null;
+    }
+
+    /**
+     * Submits a block of lines to a scheduler, moves them to the lines in flight and clears the
+     * block.
+     */
+    private static void submit(LengthAwareScheduler scheduler,
+                               List<InputLine> block,
+                               Deque<InputLine> inFlight) {
+        List<InputSentence> sentences = new ArrayList<>(block.size());
+        for (InputLine line : block) {
+            sentences.add(line.sentence);
+        }
+        List<Future<ExtractionResult>> results = scheduler.submit(sentences);
+        for (int i = 0; i < block.size(); i++) {
+            block.get(i).result = results.get(i);
+        }
+        inFlight.addAll(block);
+        block.clear();
+    }
+
+    /**
+     * Waits for the result of a sentence processed by a worker thread.
+     */
+    private static ExtractionResult await(Future<ExtractionResult> result) throws IOException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a worker thread");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Writes the output for a single sentence.
+     */
+    private static void print(PrintWriter dout,
+                              PropositionWriter writer,
+                              boolean flush,
+                              OptionSet options,
+                              ClausIEEngine engine,
+                              InputLine sentence,
+                              ExtractionResult result) throws IOException {
+        long start = System.nanoTime();
+        if (options.has("v")) {
+            dout.print("# Line ");
+            dout.print(sentence.lineNo);
+            if (options.has("l") || options.has("conllu") || options.has("doc")) {
+                dout.print(" (id ");
+                dout.print(sentence.sentence.getId());
+                dout.print(")");
+            }
+            dout.print(": ");
+            dout.print(sentence.sentence.getText());
+            dout.println();
+            if (result.getStatus() == ExtractionResult.Status.TIMEOUT) {
+                dout.println("# Parse timed out");
+            } else if (result.getStatus() == ExtractionResult.Status.TOO_LONG) {
+                dout.println("# Sentence too long; not parsed");
+            } else {
+                dout.print("# Semantic graph: ");
+                dout.println(result.getSemanticGraph().toFormattedString()
+                        .replaceAll("\n", "\n#                ").trim());
+            }
+            dout.print("#   Detected ");
+            dout.print(result.getClauses().size());
+            dout.println(" clause(s).");
+            for (Clause clause : result.getClauses()) {
+                dout.print("#   - ");
+                dout.print(clause.toString(engine.getOptions()));
+                dout.println();
+            }
+        }
+        // dout.print("\t");
+        if (options.has("s")) {
+            dout.print(sentence.sentence.getText());
+            dout.println();
+        }
+
+        writer.write(result);
+        if (flush) {
+            writer.flush();
+        }
+        if (engine.getStageTimes() != null) {
+            engine.getStageTimes().add(StageTimes.Stage.OUTPUT, System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package de.mpii.clausie;
+
+import edu.stanford.nlp.ling.CoreAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.Annotator;
+import edu.stanford.nlp.pipeline.SentenceAnnotator;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations;
+import edu.stanford.nlp.semgraph.SemanticGraphEdge;
+import edu.stanford.nlp.trees.TreeCoreAnnotations;
+import edu.stanford.nlp.util.CoreMap;
+import edu.stanford.nlp.util.ErasureUtils;
+import edu.stanford.nlp.util.PropertiesUtils;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Runs ClausIE as an annotator of a Stanford CoreNLP pipeline.
+ * <p>
+ * The annotator adds the propositions of each sentence as {@link PropositionsAnnotation}. It
+ * does not parse: it extracts from the basic dependencies (and, if present, the constituent tree)
+ * produced by an earlier {@code parse} or {@code depparse} annotator; as in the dependencies
+ * produced by {@link PcfgDependencyProvider}, punctuation is left out of the graph ClausIE sees.
+ * The annotations of the sentence are not modified. Register it under the name
+ * {@code clausie} with {@link #register(Properties)}, or by setting the property
+ * {@code customAnnotatorClass.clausie} to the name of this class, e.g.:
+ * <pre>
+ * annotators = tokenize, ssplit, pos, lemma, parse, clausie
+ * customAnnotatorClass.clausie = de.mpii.clausie.ClausIEAnnotator
+ * </pre>
+ * Properties (prefixed with the name of the annotator):
+ * <ul>
+ * <li>{@code clausie.options}: the options file (default: the default {@link Options})</li>
+ * <li>{@code clausie.nthreads}: number of threads that annotate the sentences of a document
+ * (default: property {@code nthreads}, or 1)</li>
+ * <li>{@code clausie.maxtime}: maximum time in milliseconds to annotate a document; sentences
+ * that are not done in time get no propositions (default: -1, unbounded)</li>
+ * </ul>
+ */
+public class ClausIEAnnotator extends SentenceAnnotator {
+
+    /**
+     * The name under which the annotator is registered by {@link #register(Properties)}.
+     */
+    public static final String NAME = "clausie";
+
+    public static final Annotator.Requirement CLAUSIE_REQUIREMENT = new Annotator.Requirement(NAME);
+
+    /**
+     * The propositions of a sentence.
+     */
+    public static final class PropositionsAnnotation implements CoreAnnotation<List<Proposition>> {
+        @Override
+        public Class<List<Proposition>> getType() {
+            return ErasureUtils.uncheckedCast(List.class);
+        }
+    }
+
+    /**
+     * The relation of punctuation to its governor.
+     */
+    private static final String PUNCTUATION = "punct";
+
+    private final ClausIEEngine engine;
+    private final int nThreads;
+    private final long maxTime;
+
+    /**
+     * Constructs an annotator with the given name and the properties of the pipeline. Called by
+     * {@link StanfordCoreNLP} for custom annotators.
+     */
+    public ClausIEAnnotator(String name,
+                            Properties properties) throws IOException {
+        String options = properties.getProperty(name + ".options");
+        this.engine = new ClausIEEngine(options != null ? new Options(options) : new Options(),
+                (DependencyProvider) null);
+        this.nThreads = PropertiesUtils.getInt(properties, name + ".nthreads",
+                PropertiesUtils.getInt(properties, "nthreads", 1));
+        this.maxTime = PropertiesUtils.getLong(properties, name + ".maxtime", -1);
+    }
+
+    /**
+     * Constructs an annotator that extracts with the given engine on the given number of threads.
+     * The dependency provider of the engine is not used.
+     */
+    public ClausIEAnnotator(ClausIEEngine engine,
+                            int nThreads) {
+        this.engine = engine;
+        this.nThreads = nThreads;
+        this.maxTime = -1;
+    }
+
+    /**
+     * Registers the annotator under the name {@code clausie} in the properties of a pipeline.
+     */
+    public static Properties register(Properties properties) {
+        properties.setProperty(StanfordCoreNLP.CUSTOM_ANNOTATOR_PREFIX + NAME, ClausIEAnnotator.class.getName());
+        return properties;
+    }
+
+    public ClausIEEngine getEngine() {
+        return engine;
+    }
+
+    @Override
+    protected int nThreads() {
+        return nThreads;
+    }
+
+    @Override
+    protected long maxTime() {
+        return maxTime;
+    }
+
+    @Override
+    protected void doOneSentence(Annotation annotation,
+                                 CoreMap sentence) {
+        SemanticGraph semanticGraph = sentence.get(SemanticGraphCoreAnnotations.BasicDependenciesAnnotation.class);
+        if (semanticGraph == null) {
+            throw new IllegalStateException("Sentence has no basic dependencies; run parse or depparse before "
+                    + NAME);
+        }
+        List<CoreLabel> tokens = sentence.get(CoreAnnotations.TokensAnnotation.class);
+        DependencyParse parse = new DependencyParse(tokens, withoutPunctuation(semanticGraph),
+                sentence.get(TreeCoreAnnotations.TreeAnnotation.class), Double.NaN);
+        Integer index = sentence.get(CoreAnnotations.SentenceIndexAnnotation.class);
+        ExtractionResult result = engine.extract(index != null ? index.toString() : null,
+                sentence.get(CoreAnnotations.TextAnnotation.class), parse);
+        sentence.set(PropositionsAnnotation.class, result.getPropositions());
+    }
+
+    /**
+     * Returns the graph without punctuation, which is a copy if the graph contains punctuation.
+     */
+    private static SemanticGraph withoutPunctuation(SemanticGraph semanticGraph) {
+        SemanticGraph result = semanticGraph;
+        for (SemanticGraphEdge edge : semanticGraph.edgeIterable()) {
+            if (PUNCTUATION.equals(edge.getRelation().getShortName())) {
+                if (result == semanticGraph) {
+                    result = new SemanticGraph(semanticGraph);
+                }
+                result.removeVertex(edge.getDependent());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    protected void doOneFailedSentence(Annotation annotation,
+                                       CoreMap sentence) {
+        sentence.set(PropositionsAnnotation.class, Collections.<Proposition>emptyList());
+    }
+
+    @Override
+    public Set<Requirement> requires() {
+        Set<Requirement> requirements = new HashSet<>();
+        requirements.add(TOKENIZE_REQUIREMENT);
+        requirements.add(SSPLIT_REQUIREMENT);
+        requirements.add(POS_REQUIREMENT);
+        requirements.add(DEPENDENCY_REQUIREMENT);
+        return Collections.unmodifiableSet(requirements);
+    }
+
+    @Override
+    public Set<Requirement> requirementsSatisfied() {
+        return Collections.singleton(CLAUSIE_REQUIREMENT);
+    }
+}
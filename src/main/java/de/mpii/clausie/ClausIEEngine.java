@@ -0,0 +1,569 @@
+package de.mpii.clausie;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.parser.lexparser.LexicalizedParser;
+import edu.stanford.nlp.util.CoreMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A thread-safe entry point to ClausIE.
+ * <p>
+ * The engine holds the state that is shared by all sentences, i.e., the {@link Options} and the
+ * {@link DependencyProvider} (by default, the PCFG parser). Each call to {@code extract} processes
+ * one sentence in a fresh {@link ClausIE} instance and returns an {@link ExtractionResult}, so
+ * that several threads can extract from different sentences at the same time.
+ * <p>
+ * Optionally, the time spent parsing a single sentence can be bounded with
+ * {@link #setParseTimeout(long, TimeUnit)}. A parse that exceeds the timeout is abandoned by
+ * interrupting the thread that runs it; the thread then resets its parsing state and the
+ * sentence is reported with status {@link ExtractionResult.Status#TIMEOUT}. Sentences with more
+ * tokens than the provider parses (see {@link DependencyProvider#getMaxLength()}) are not parsed
+ * and are reported with status {@link ExtractionResult.Status#TOO_LONG}.
+ * <p>
+ * With a {@link ResultCache} (see {@link #setResultCache(ResultCache)}), sentences that have
+ * been processed before are answered from the cache without parsing them again.
+ * <p>
+ * With {@link StageTimes} (see {@link #setStageTimes(StageTimes)}), the time spent in each stage
+ * of the pipeline is measured.
+ * <p>
+ * The options must not be modified while the engine is in use.
+ */
+public class ClausIEEngine implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClausIEEngine.class);
+
+    private final Options options;
+    private final DependencyProvider dependencyProvider;
+
+    /**
+     * Number of sentences parsed and the time (in nanoseconds) spent parsing them.
+     */
+    private final LongAdder parsedSentences = new LongAdder();
+    private final LongAdder parseTime = new LongAdder();
+
+    /**
+     * Maximum time (in nanoseconds) to parse a sentence; 0 if unbounded.
+     */
+    private volatile long parseTimeout;
+
+    /**
+     * Cache of the results of sentences processed before, or {@code null}, and the fingerprint of
+     * the options in the cache.
+     */
+    private volatile ResultCache resultCache;
+    private long optionsFingerprint;
+
+    /**
+     * Statistics of the time spent in each stage, or {@code null}.
+     */
+    private volatile StageTimes stageTimes;
+
+    /**
+     * Interrupts parses that exceed the timeout; created when a timeout is set.
+     */
+    private ScheduledThreadPoolExecutor watchdog;
+
+    /**
+     * Names of the options and the parser model acquired from {@link ModelRegistry}, if any.
+     */
+    private String sharedOptions;
+    private String sharedModel;
+
+    // -- construction
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Constructs an engine with the given options and dependency provider. An engine without
+     * provider ({@code null}) only processes sentences that have already been parsed.
+     */
+    public ClausIEEngine(Options options,
+                         DependencyProvider dependencyProvider) {
+        this.options = options;
+        this.dependencyProvider = dependencyProvider;
+    }
+
+    /**
+     * Constructs an engine with the given options and PCFG parser model.
+     */
+    public ClausIEEngine(Options options,
+                         LexicalizedParser lp) {
+        this(options, new PcfgDependencyProvider(lp));
+    }
+
+    /**
+     * Constructs an engine with the given options and the default parser model.
+     */
+    public ClausIEEngine(Options options) {
+        this(options, LexicalizedParser.loadModel(ClausIE.DEFAULT_MODEL));
+    }
+
+    /**
+     * Constructs an engine with the default options and the default parser model.
+     */
+    public ClausIEEngine() {
+        this(new Options());
+    }
+
+    /**
+     * Constructs an engine with options and a parser model that are shared through
+     * {@link ModelRegistry}. Both are released when the engine is closed.
+     *
+     * @param fileOrResourceName The options file or resource ({@link ModelRegistry#DEFAULT_OPTIONS}
+     *                           for the default options)
+     * @param model              The path or resource of the parser model
+     *                           ({@link ClausIE#DEFAULT_MODEL} for the default model)
+     */
+    public static ClausIEEngine shared(String fileOrResourceName,
+                                       String model) throws IOException {
+        Options options = ModelRegistry.acquireOptions(fileOrResourceName);
+        LexicalizedParser lp;
+        try {
+            lp = ModelRegistry.acquireParser(model);
+        } catch (RuntimeException e) {
+            ModelRegistry.releaseOptions(fileOrResourceName);
+            throw e;
+        }
+        ClausIEEngine engine = new ClausIEEngine(options, lp);
+        engine.sharedOptions = fileOrResourceName;
+        engine.sharedModel = model;
+        return engine;
+    }
+
+    /**
+     * Releases the options and the parser model if they were acquired from
+     * {@link ModelRegistry}. The engine must not be used afterwards.
+     */
+    @Override
+    public synchronized void close() {
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+            watchdog = null;
+        }
+        if (sharedModel != null) {
+            ModelRegistry.releaseParser(sharedModel);
+            sharedModel = null;
+        }
+        if (sharedOptions != null) {
+            ModelRegistry.releaseOptions(sharedOptions);
+            sharedOptions = null;
+        }
+    }
+
+    // -- getters
+    // ---------------------------------------------------------------------------------
+
+    public Options getOptions() {
+        return options;
+    }
+
+    public DependencyProvider getDependencyProvider() {
+        return dependencyProvider;
+    }
+
+    /**
+     * Returns the PCFG parser model, or {@code null} if the engine does not parse with
+     * {@link PcfgDependencyProvider}.
+     */
+    public LexicalizedParser getParser() {
+        return dependencyProvider instanceof PcfgDependencyProvider
+                ? ((PcfgDependencyProvider) dependencyProvider).getParser()
+                : null;
+    }
+
+    /**
+     * Returns the number of sentences parsed so far and the parse rate of the dependency
+     * provider, i.e., the number of sentences parsed per second of parsing time of a thread.
+     */
+    public String getParseReport() {
+        long sentences = parsedSentences.sum();
+        long time = parseTime.sum();
+        return String.format("%s: %d sentences parsed in %.1f s (%.1f sentences/s per thread)",
+                dependencyProvider == null ? "no parser" : dependencyProvider.getName(), sentences, time / 1e9,
+                time > 0 ? sentences * 1e9 / time : 0.0);
+    }
+
+    /**
+     * Resets the statistics of the parser (see {@link #getParseReport()}) and of the dependency
+     * provider, the stage times and the statistics of the result cache, e.g., after a warm-up.
+     */
+    public synchronized void resetStatistics() {
+        parsedSentences.reset();
+        parseTime.reset();
+        if (dependencyProvider != null) {
+            dependencyProvider.resetStatistics();
+        }
+        if (stageTimes != null) {
+            stageTimes.reset();
+        }
+        if (resultCache != null) {
+            resultCache.resetStatistics();
+        }
+    }
+
+    /**
+     * Returns the maximum time to parse a sentence in the given unit, or 0 if unbounded.
+     */
+    public long getParseTimeout(TimeUnit unit) {
+        return unit.convert(parseTimeout, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets the maximum time to parse a sentence; 0 disables the timeout (default). Should be set
+     * before the engine is used.
+     */
+    public synchronized void setParseTimeout(long timeout,
+                                             TimeUnit unit) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Negative parse timeout: " + timeout);
+        }
+        if (timeout > 0 && watchdog == null) {
+            watchdog = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread thread = new Thread(r, "clausie-parse-watchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+            watchdog.setRemoveOnCancelPolicy(true);
+        }
+        parseTimeout = unit.toNanos(timeout);
+    }
+
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Sets the cache for the results of sentences that are parsed by the engine, or
+     * {@code null} to disable caching (default). The cache may be shared with other engines.
+     * Should be set before the engine is used.
+     */
+    public synchronized void setResultCache(ResultCache resultCache) {
+        optionsFingerprint = options.fingerprint();
+        this.resultCache = resultCache;
+    }
+
+    public StageTimes getStageTimes() {
+        return stageTimes;
+    }
+
+    /**
+     * Sets the statistics to which the time spent in each stage is added, or {@code null} to
+     * stop measuring (default). The statistics are passed on to the dependency provider and may
+     * be shared with other engines. Should be set before the engine is used.
+     */
+    public synchronized void setStageTimes(StageTimes stageTimes) {
+        if (dependencyProvider != null) {
+            dependencyProvider.setStageTimes(stageTimes);
+        }
+        this.stageTimes = stageTimes;
+    }
+
+    // -- extraction
+    // ------------------------------------------------------------------------------
+
+    /**
+     * Parses a sentence, detects its clauses and generates its propositions.
+     */
+    public ExtractionResult extract(String sentence) {
+        return extract(null, sentence);
+    }
+
+    /**
+     * Parses a sentence, detects its clauses and generates its propositions. The identifier is
+     * passed on to the result.
+     */
+    public ExtractionResult extract(String id,
+                                    String sentence) {
+        ExtractionResult cached = lookup(id, sentence);
+        return cached != null ? cached : parseAndExtract(id, sentence, tokenize(sentence), true);
+    }
+
+    /**
+     * Processes a sentence that has already been tokenized, with {@link #tokenize(String)} or by
+     * an upstream pipeline. The tokens are passed to the dependency provider as they are, so
+     * that their character offsets are kept; with the PCFG parser, tokens with a part-of-speech
+     * tag constrain the parser to that tag. Sentences with tagged tokens are not cached in the
+     * result cache.
+     */
+    public ExtractionResult extract(String id,
+                                    String sentence,
+                                    List<CoreLabel> tokens) {
+        if (isTagged(tokens)) {
+            return parseAndExtract(id, sentence, tokens, false);
+        }
+        ExtractionResult cached = lookup(id, sentence);
+        return cached != null ? cached : parseAndExtract(id, sentence, tokens, true);
+    }
+
+    /**
+     * Processes a sentence given as words and, optionally, their part-of-speech tags (see
+     * {@link ClausIE#toTokens(List, List)}). The text of the sentence is the words separated by
+     * single spaces.
+     */
+    public ExtractionResult extract(String id,
+                                    List<String> words,
+                                    List<String> tags) {
+        return extract(id, String.join(" ", words), ClausIE.toTokens(words, tags));
+    }
+
+    private static boolean isTagged(List<CoreLabel> tokens) {
+        for (CoreLabel token : tokens) {
+            if (token.tag() != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the result of an earlier occurrence of a sentence from the result cache, or
+     * {@code null}.
+     */
+    private ExtractionResult lookup(String id,
+                                    String sentence) {
+        ResultCache resultCache = this.resultCache;
+        ExtractionResult cached = resultCache != null ? resultCache.get(optionsFingerprint, sentence) : null;
+        return cached != null ? cached.withId(id, sentence) : null;
+    }
+
+    private ExtractionResult parseAndExtract(String id,
+                                             String sentence,
+                                             List<CoreLabel> tokens,
+                                             boolean cache) {
+        int maxLength = dependencyProvider().getMaxLength();
+        if (tokens.size() > maxLength) {
+            logger.warn("Sentence {} has {} tokens, more than the {} tokens the parser accepts; skipped", id,
+                    tokens.size(), maxLength);
+            return ExtractionResult.tooLong(id, sentence);
+        }
+        DependencyParse parse = parse(tokens);
+        if (parse == null) {
+            logger.warn("Parsing sentence {} took longer than {} ms; skipped", id,
+                    getParseTimeout(TimeUnit.MILLISECONDS));
+            return ExtractionResult.timeout(id, sentence);
+        }
+        ExtractionResult result = extract(id, sentence, parse);
+        ResultCache resultCache = this.resultCache;
+        if (cache && resultCache != null) {
+            resultCache.put(optionsFingerprint, sentence, result);
+        }
+        return result;
+    }
+
+    /**
+     * Detects clauses and generates propositions for a sentence that has already been parsed,
+     * e.g., read by {@link ConllUReader}.
+     */
+    public ExtractionResult extract(String id,
+                                    String sentence,
+                                    DependencyParse parse) {
+        ClausIE clausIE = newClausIE();
+        clausIE.process(parse);
+        return extract(clausIE, id, sentence, parse.getScore());
+    }
+
+    /**
+     * Parses a sentence within the parse timeout. Returns {@code null} if the parse has been
+     * abandoned; the parsing state of the current thread is reset in this case.
+     */
+    private DependencyParse parse(List<CoreLabel> tokens) {
+        DependencyProvider dependencyProvider = dependencyProvider();
+        long start = System.nanoTime();
+        long timeout = parseTimeout;
+        DependencyParse parse = null;
+        if (timeout == 0) {
+            parse = dependencyProvider.parse(tokens);
+        } else {
+            Deadline deadline = new Deadline(Thread.currentThread());
+            ScheduledFuture<?> alarm = watchdog.schedule(deadline::expire, timeout, TimeUnit.NANOSECONDS);
+            try {
+                parse = dependencyProvider.parse(tokens);
+            } catch (RuntimeException e) {
+                if (!deadline.isExpired()) {
+                    throw e;
+                }
+            } finally {
+                alarm.cancel(false);
+                deadline.finish();
+            }
+            if (parse == null) {
+                // the provider is left in the state of the abandoned parse
+                dependencyProvider.reset();
+                return null;
+            }
+        }
+        parseTime.add(System.nanoTime() - start);
+        parsedSentences.increment();
+        return parse;
+    }
+
+    /**
+     * Splits a sentence into tokens as done by the dependency provider.
+     */
+    public List<CoreLabel> tokenize(String sentence) {
+        long start = System.nanoTime();
+        List<CoreLabel> tokens = dependencyProvider().tokenize(sentence);
+        StageTimes stageTimes = this.stageTimes;
+        if (stageTimes != null) {
+            stageTimes.add(StageTimes.Stage.TOKENIZATION, System.nanoTime() - start);
+        }
+        return tokens;
+    }
+
+    private DependencyProvider dependencyProvider() {
+        if (dependencyProvider == null) {
+            throw new IllegalStateException("No dependency provider; only parsed sentences can be processed");
+        }
+        return dependencyProvider;
+    }
+
+    /**
+     * Processes a sentence together with its identifier.
+     */
+    public ExtractionResult extract(InputSentence sentence) {
+        if (sentence.getParse() != null) {
+            return extract(sentence.getId(), sentence.getText(), sentence.getParse());
+        }
+        if (sentence.getTokens() != null) {
+            return extract(sentence.getId(), sentence.getText(), sentence.getTokens());
+        }
+        return extract(sentence.getId(), sentence.getText());
+    }
+
+    /**
+     * Detects clauses and generates propositions for a sentence that has already been parsed,
+     * e.g., by a Stanford CoreNLP pipeline.
+     */
+    public ExtractionResult extract(CoreMap sentence) {
+        ClausIE clausIE = newClausIE();
+        clausIE.process(sentence);
+        return extract(clausIE, null, sentence.get(CoreAnnotations.TextAnnotation.class), Double.NaN);
+    }
+
+    private ClausIE newClausIE() {
+        ClausIE clausIE = new ClausIE(options);
+        clausIE.stageTimes = stageTimes;
+        return clausIE;
+    }
+
+    private static ExtractionResult extract(ClausIE clausIE,
+                                            String id,
+                                            String sentence,
+                                            double pcfgScore) {
+        clausIE.detectClauses();
+        clausIE.generatePropositions();
+        return new ExtractionResult(
+                id,
+                ExtractionResult.Status.OK,
+                sentence,
+                clausIE.getDepTree(),
+                clausIE.getSemanticGraph(),
+                clausIE.getClauses(),
+                clausIE.getPropositions(),
+                pcfgScore
+        );
+    }
+
+    // -- batch extraction
+    // ------------------------------------------------------------------------
+
+    /**
+     * Returns a lazy stream of the results for the given sentences, in the order of the input.
+     * Sentences are identified by their position in the input stream, starting from 1.
+     * <p>
+     * The returned stream is sequential; call {@link Stream#parallel()} on it to process the
+     * sentences on the common fork-join pool. The input stream is consumed sequentially in both
+     * cases and is closed when the returned stream is closed.
+     */
+    public Stream<ExtractionResult> extractAll(Stream<String> sentences) {
+        return extractAll(sentences, SentenceSpliterator.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Same as {@link #extractAll(Stream)}, but reads {@code batchSize} sentences per split of
+     * the stream.
+     */
+    public Stream<ExtractionResult> extractAll(Stream<String> sentences,
+                                               int batchSize) {
+        Spliterator<InputSentence> spliterator = SentenceSpliterator.numbered(
+                sentences.iterator(), Long.MAX_VALUE, batchSize
+        );
+        return StreamSupport.stream(spliterator, false)
+                .map(this::extract)
+                .onClose(sentences::close);
+    }
+
+    /**
+     * Returns a lazy stream of the results for the given sentences, in the order of the input.
+     * <p>
+     * The returned stream is sequential; call {@link Stream#parallel()} on it to process the
+     * sentences on the common fork-join pool.
+     */
+    public Stream<ExtractionResult> extractAll(Iterable<InputSentence> sentences) {
+        return extractAll(sentences, SentenceSpliterator.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Same as {@link #extractAll(Iterable)}, but reads {@code batchSize} sentences per split of
+     * the stream.
+     */
+    public Stream<ExtractionResult> extractAll(Iterable<InputSentence> sentences,
+                                               int batchSize) {
+        long size = sentences instanceof Collection
+                ? ((Collection<?>) sentences).size()
+                : Long.MAX_VALUE;
+        Spliterator<InputSentence> spliterator = new SentenceSpliterator(
+                sentences.iterator(), size, batchSize
+        );
+        return StreamSupport.stream(spliterator, false).map(this::extract);
+    }
+
+    /**
+     * The deadline of the parse running on a thread. The thread is interrupted only while the
+     * parse is running, and an interrupt caused by the deadline does not outlive the parse.
+     */
+    private static final class Deadline {
+
+        private final Thread thread;
+        private boolean running = true;
+        private boolean expired;
+
+        Deadline(Thread thread) {
+            this.thread = thread;
+        }
+
+        synchronized void expire() {
+            if (running) {
+                expired = true;
+                thread.interrupt();
+            }
+        }
+
+        synchronized boolean isExpired() {
+            return expired;
+        }
+
+        /**
+         * Called by the parsing thread when the parse has ended.
+         */
+        synchronized void finish() {
+            running = false;
+            if (expired) {
+                // clear the interrupt if the parser did not
+                Thread.interrupted();
+            }
+        }
+    }
+}
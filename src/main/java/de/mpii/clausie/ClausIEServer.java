@@ -0,0 +1,255 @@
+package de.mpii.clausie;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A long-running HTTP server that answers extraction requests on the loopback interface.
+ * <p>
+ * The server keeps the parser model and the options loaded in a {@link ClausIEEngine} and
+ * processes sentences on a fixed pool of worker threads. {@link #start()} has each worker parse a
+ * sentence, so that its parser query is ready when the first request arrives, and resets the
+ * statistics of the engine afterwards, so that they cover requests only.
+ * <p>
+ * Endpoints:
+ * <ul>
+ * <li>{@code POST /extract}: the request body (UTF-8 plain text) contains one sentence per line;
+ * a line of form {@code <id>\t<sentence>} sets the identifier of the sentence, which otherwise is
+ * the number of the line. Empty lines are skipped. The response is a JSON object
+ * {@code {"results":[...]}} with one entry per sentence, in the order of the request. Sentences
+ * whose parse exceeds the parse timeout of the engine have status {@code "timeout"}, and
+ * sentences that are too long for the parser have status {@code "too_long"}.</li>
+ * <li>{@code GET /health}: returns {@code ok} once the server is ready.</li>
+ * <li>{@code GET /stats}: returns the parse report of the engine and, if the engine measures
+ * them (see {@link ClausIEEngine#setStageTimes(StageTimes)}), the times of the stages of all
+ * requests so far, as plain text.</li>
+ * </ul>
+ */
+public class ClausIEServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClausIEServer.class);
+
+    private static final String WARM_UP_SENTENCE = "ClausIE is ready to extract propositions.";
+
+    private final ClausIEEngine engine;
+    private final HttpServer server;
+    private final ThreadPoolExecutor workers;
+    private final int threads;
+    private final ExecutorService handlers;
+
+    // -- construction
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Creates a server for a given engine on {@code localhost:port}. The server does not accept
+     * requests before {@link #start()} is called.
+     *
+     * @param engine  The engine used to process sentences
+     * @param port    The port to listen on (0 to choose a free port)
+     * @param threads The number of worker threads
+     */
+    public ClausIEServer(ClausIEEngine engine,
+                         int port,
+                         int threads) throws IOException {
+        this.engine = engine;
+        this.threads = threads;
+        AtomicInteger workerNo = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(
+                threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread thread = new Thread(r, "clausie-worker-" + workerNo.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+        this.handlers = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "clausie-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.setExecutor(handlers);
+        this.server.createContext("/extract", this::handleExtract);
+        this.server.createContext("/health", this::handleHealth);
+        this.server.createContext("/stats", this::handleStats);
+    }
+
+    // -- life cycle
+    // ------------------------------------------------------------------------------
+
+    /**
+     * Starts the worker threads and, once each of them has parsed a sentence, begins to accept
+     * requests.
+     *
+     * @throws IOException if a worker fails to parse its first sentence; the server is stopped
+     */
+    public void start() throws IOException {
+        // one task per worker: each task waits until all have started, so that no worker runs two
+        CountDownLatch started = new CountDownLatch(threads);
+        List<Future<?>> warmUps = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            warmUps.add(workers.submit(() -> {
+                started.countDown();
+                started.await();
+                return engine.extract(WARM_UP_SENTENCE);
+            }));
+        }
+        try {
+            for (Future<?> warmUp : warmUps) {
+                warmUp.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stop();
+            throw new InterruptedIOException("Interrupted while starting the workers");
+        } catch (ExecutionException e) {
+            stop();
+            throw new IOException("Unable to parse with the workers", e.getCause());
+        }
+        engine.resetStatistics();
+        server.start();
+        logger.info("ClausIE server listening on http://{}:{}/", server.getAddress().getHostString(),
+                getPort());
+    }
+
+    /**
+     * Stops accepting requests and shuts down the worker threads.
+     */
+    public void stop() {
+        server.stop(0);
+        handlers.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // -- request handling
+    // ------------------------------------------------------------------------
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Use GET");
+                return;
+            }
+            send(exchange, 200, "text/plain; charset=utf-8", "ok\n");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Use GET");
+                return;
+            }
+            StringBuilder sb = new StringBuilder();
+            sb.append(engine.getParseReport()).append('\n');
+            StageTimes stageTimes = engine.getStageTimes();
+            if (stageTimes != null) {
+                sb.append(stageTimes.getReport()).append('\n');
+            }
+            if (engine.getResultCache() != null) {
+                sb.append(engine.getResultCache().getReport()).append('\n');
+            }
+            send(exchange, 200, "text/plain; charset=utf-8", sb.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleExtract(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Use POST");
+                return;
+            }
+            List<InputSentence> sentences = readSentences(exchange.getRequestBody());
+            List<Future<ExtractionResult>> results = new ArrayList<>(sentences.size());
+            for (InputSentence sentence : sentences) {
+                results.add(workers.submit(() -> engine.extract(sentence)));
+            }
+            StringBuilder sb = new StringBuilder();
+            sb.append("{\"results\":[");
+            String sep = "";
+            StageTimes stageTimes = engine.getStageTimes();
+            for (Future<ExtractionResult> result : results) {
+                ExtractionResult extractionResult = result.get();
+                long start = System.nanoTime();
+                sb.append(sep);
+                Json.appendResult(sb, extractionResult);
+                sep = ",";
+                if (stageTimes != null) {
+                    stageTimes.add(StageTimes.Stage.OUTPUT, System.nanoTime() - start);
+                }
+            }
+            sb.append("]}\n");
+            send(exchange, 200, "application/json; charset=utf-8", sb.toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendError(exchange, 503, "Server is shutting down");
+        } catch (ExecutionException | RuntimeException e) {
+            logger.error("Extraction failed", e);
+            sendError(exchange, 500, "Extraction failed: " + e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Reads the sentences of a request body.
+     */
+    private static List<InputSentence> readSentences(InputStream in) throws IOException {
+        List<InputSentence> sentences = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        int lineNo = 1;
+        for (String line = reader.readLine(); line != null; line = reader.readLine(), lineNo++) {
+            int tabIndex = line.indexOf('\t');
+            String id = tabIndex >= 0 ? line.substring(0, tabIndex).trim() : Integer.toString(lineNo);
+            String text = line.substring(tabIndex + 1).trim();
+            if (!text.isEmpty()) {
+                sentences.add(new InputSentence(id, text));
+            }
+        }
+        return sentences;
+    }
+
+    private static void sendError(HttpExchange exchange,
+                                  int status,
+                                  String message) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"error\":");
+        Json.appendString(sb, message);
+        sb.append("}\n");
+        send(exchange, status, "application/json; charset=utf-8", sb.toString());
+    }
+
+    private static void send(HttpExchange exchange,
+                             int status,
+                             String contentType,
+                             String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -90,11 +90,15 @@ public class Clause {
     boolean relativeAdverbial;
 
     /**
-     * Parent clause of this clause, if any. For example, in
-     * "He said this is true." the clause "this / is / true" has parent
-     * "he / said / this is true".
+     * Root of this clause in the graph of the sentence, if the clause may have a parent clause
+     * (see {@link #getParentClause()}).
      */
-    Clause parentClause;
+    IndexedWord root;
+
+    /**
+     * Resolves the parent clause; {@code null} if the clause has no parent.
+     */
+    ClauseAncestors ancestors;
 
     /**
      * Agent (for passive voice). Currently unused.
@@ -124,13 +128,23 @@ public class Clause {
         clause.adverbials = new ArrayList<>(adverbials);
         clause.relativeAdverbial = relativeAdverbial;
         clause.agent = agent;
-        clause.parentClause = parentClause;
+        clause.root = root;
+        clause.ancestors = ancestors;
         return clause;
     }
 
     // -- methods
     // ---------------------------------------------------------------------------------
 
+    /**
+     * Returns the parent clause of this clause, if any. For example, in
+     * "He said this is true." the clause "this / is / true" has parent
+     * "he / said / this is true". The parent clauses of a sentence are resolved on the first call.
+     */
+    public Clause getParentClause() {
+        return root != null && ancestors != null ? ancestors.parentOf(root) : null;
+    }
+
     /**
      * Determines the type of this clause, if still unknown.
      */
@@ -365,7 +379,7 @@ public class Clause {
         if (constituent instanceof IndexedConstituent) {
             IndexedConstituent indexedConstituent = (IndexedConstituent) constituent;
             IndexedWord root = indexedConstituent.getRoot();
-            if (indexedConstituent.getSemanticGraph().hasChildren(root)) {
+            if (indexedConstituent.getGraph().hasChildren(root)) {
                 // ||IndexedConstituent.sentSemanticGraph.getNodeByIndexSafe(root.index()
                 // + 1) != null
                 // &&
@@ -397,7 +411,7 @@ public class Clause {
         if (constituent instanceof IndexedConstituent) {
             IndexedConstituent indexedConstituent = (IndexedConstituent) constituent;
             IndexedWord root = indexedConstituent.getRoot();
-            if (indexedConstituent.getSemanticGraph().hasChildren(root)) {
+            if (indexedConstituent.getGraph().hasChildren(root)) {
                 return false;
             }
             s = root.lemma();
@@ -0,0 +1,120 @@
+package de.mpii.clausie;
+
+import edu.stanford.nlp.ling.IndexedWord;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Resolves the parent clauses of the clauses of a sentence (see {@link Clause#getParentClause()}).
+ * <p>
+ * The parent of a clause is the first clause whose root is the nearest (strict) ancestor of the
+ * root of the clause that is the root of any clause; ancestors are searched depth-first along the
+ * sorted incoming edges. The index is built on the first query: it maps each vertex to the first
+ * clause it is the root of and, computed once for all vertexes, to its nearest ancestor that is
+ * the root of a clause, so that each query takes constant time (unless the graph has cycles,
+ * see {@link #ancestor(int, int)}). Instances are thread-safe.
+ */
+final class ClauseAncestors {
+
+    private static final int UNKNOWN = -2;
+    private static final int VISITING = -3;
+
+    private final SentenceGraph graph;
+    private final List<Clause> clauses;
+    private final List<IndexedWord> roots;
+
+    /**
+     * The first clause rooted at each vertex, or -1.
+     */
+    private int[] clauseOf;
+
+    /**
+     * The nearest strict ancestor of each vertex that is the root of a clause, or -1.
+     */
+    private int[] ancestor;
+
+    /**
+     * The smallest depth of a vertex on the search path that the current search has reached again.
+     */
+    private int reached;
+
+    /**
+     * @param graph   The graph of the sentence
+     * @param clauses The clauses of the sentence
+     * @param roots   The root of each clause, or {@code null} for clauses without a parent
+     */
+    ClauseAncestors(SentenceGraph graph,
+                    List<Clause> clauses,
+                    List<IndexedWord> roots) {
+        this.graph = graph;
+        this.clauses = new ArrayList<>(clauses);
+        this.roots = new ArrayList<>(roots);
+    }
+
+    /**
+     * Returns the parent clause of the clause with the given root, or {@code null} if there is
+     * none.
+     */
+    synchronized Clause parentOf(IndexedWord root) {
+        if (clauseOf == null) {
+            build();
+        }
+        int v = graph.id(root);
+        if (v < 0) {
+            return null;
+        }
+        int a = ancestor(v, 0);
+        return a >= 0 ? clauses.get(clauseOf[a]) : null;
+    }
+
+    private void build() {
+        clauseOf = new int[graph.size()];
+        Arrays.fill(clauseOf, -1);
+        for (int i = roots.size() - 1; i >= 0; i--) {
+            IndexedWord root = roots.get(i);
+            int v = root != null ? graph.id(root) : -1;
+            if (v >= 0) {
+                clauseOf[v] = i;
+            }
+        }
+        ancestor = new int[graph.size()];
+        Arrays.fill(ancestor, UNKNOWN);
+    }
+
+    /**
+     * Returns the nearest strict ancestor of a vertex that is the root of a clause, or -1.
+     * <p>
+     * The search does not follow cycles: vertexes on the current search path are marked with
+     * {@link #VISITING} minus their depth on the path and skipped. The result of a vertex is
+     * memoized only if its search did not reach a vertex above it on the path, since otherwise it
+     * depends on the path (e.g., the vertex may reach a clause root only through such a vertex).
+     *
+     * @param v     The vertex
+     * @param depth The depth of the vertex on the search path
+     */
+    private int ancestor(int v,
+                         int depth) {
+        if (ancestor[v] != UNKNOWN) {
+            return ancestor[v];
+        }
+        ancestor[v] = VISITING - depth;
+        int reachedAbove = reached;
+        reached = Integer.MAX_VALUE;
+        int result = -1;
+        for (int i = graph.inStart(v); i < graph.inStart(v + 1) && result < 0; i++) {
+            int governor = graph.governor(graph.inSorted(i));
+            if (clauseOf[governor] >= 0) {
+                result = governor;
+            } else if (ancestor[governor] <= VISITING) {
+                reached = Math.min(reached, VISITING - ancestor[governor]);
+            } else {
+                result = ancestor(governor, depth + 1);
+            }
+        }
+        ancestor[v] = reached < depth ? UNKNOWN : result;
+        reached = Math.min(reached, reachedAbove);
+        return result;
+    }
+}
@@ -2,10 +2,8 @@ package de.mpii.clausie;
 
 import de.mpii.clausie.Constituent.Type;
 import edu.stanford.nlp.ling.IndexedWord;
-import edu.stanford.nlp.semgraph.SemanticGraph;
 import edu.stanford.nlp.semgraph.SemanticGraphEdge;
 import edu.stanford.nlp.trees.EnglishGrammaticalRelations;
-import edu.stanford.nlp.trees.GrammaticalRelation;
 
 import java.util.*;
 
@@ -23,33 +21,112 @@ import java.util.*;
 final class ClauseDetector {
 
     /**
-     * Set of dependency relations that do not belong to a complement.
+     * Dependency relations (and their descendants) that do not belong to a complement, as relation
+     * codes of {@link DpUtils}.
      */
-    private static final Set<GrammaticalRelation> EXCLUDE_RELATIONS_COMPLEMENT;
+    private static final long EXCLUDE_RELATIONS_COMPLEMENT = DpUtils.ANY_AUX_SD | DpUtils.ANY_AUXPASS_SD
+            | DpUtils.ANY_SUBJ_SD | DpUtils.ANY_COP_SD | DpUtils.ANY_ADVMOD_SD;
 
-    static {
-        Set<GrammaticalRelation> temp = new HashSet<>();
-        temp.add(EnglishGrammaticalRelations.AUX_MODIFIER);
-        temp.add(EnglishGrammaticalRelations.AUX_PASSIVE_MODIFIER);
-        temp.add(EnglishGrammaticalRelations.SUBJECT);
-        temp.add(EnglishGrammaticalRelations.COPULA);
-        temp.add(EnglishGrammaticalRelations.ADVERBIAL_MODIFIER);
-        EXCLUDE_RELATIONS_COMPLEMENT = Collections.unmodifiableSet(temp);
+    /**
+     * Dependency relations (and their descendants) that belong to the verb, as relation codes of
+     * {@link DpUtils}.
+     */
+    private static final long INCLUDE_RELATIONS_VERB = DpUtils.ANY_AUX_SD | DpUtils.ANY_AUXPASS_SD
+            | DpUtils.ANY_NEG_SD;
+
+    /**
+     * Relations of adverbials, as relation codes of {@link DpUtils}.
+     */
+    private static final long ADVERBIAL_RELATIONS = DpUtils.ANY_PREP | DpUtils.POBJ | DpUtils.TMOD
+            | DpUtils.ADVCL | DpUtils.NPADVMOD | DpUtils.PURPCL;
+
+    /**
+     * Relations excluded from the object of a possessive clause, as relation codes of
+     * {@link DpUtils}.
+     */
+    private static final long EXCLUDE_RELATIONS_POSS = DpUtils.ADVCL | DpUtils.ADVMOD | DpUtils.ANY_OBJ
+            | DpUtils.ANY_SUBJ | DpUtils.AUX | DpUtils.COP | DpUtils.TMOD;
+
+    /**
+     * Detects a clause from an edge of the sentence (see {@link #detectClauses(ClausIE)}).
+     */
+    private interface ClauseHandler {
+        void handle(ClausIE clausIE,
+                    List<IndexedWord> roots,
+                    SemanticGraphEdge edge);
     }
 
     /**
-     * Set of dependency relations that belong to the verb.
+     * Selects a constituent of a clause from an outgoing edge of the root of the clause (see
+     * {@link #addNsubjClause(ClausIE, List, List, IndexedWord, IndexedWord, boolean)}).
      */
-    private static final Set<GrammaticalRelation> INCLUDE_RELATIONS_VERB;
+    private interface ConstituentHandler {
+        void handle(ClauseContext context,
+                    SemanticGraphEdge edge);
+    }
 
-    static {
-        Set<GrammaticalRelation> temp = new HashSet<>();
-        temp.add(EnglishGrammaticalRelations.AUX_MODIFIER);
-        temp.add(EnglishGrammaticalRelations.AUX_PASSIVE_MODIFIER);
-        temp.add(EnglishGrammaticalRelations.NEGATION_MODIFIER);
-        INCLUDE_RELATIONS_VERB = Collections.unmodifiableSet(temp);
+    /**
+     * The clause whose constituents are being selected.
+     */
+    private static final class ClauseContext {
+        final ClausIE clausIE;
+        final SemanticGraphOverlay semanticGraph;
+        final Clause clause;
+        final Constituent constRoot;
+        final IndexedWord subject;
+        final SemanticGraphEdge poss;
+
+        /**
+         * The relative clause modifier of the clause, or {@code null} once it has been used.
+         */
+        SemanticGraphEdge rcmod;
+
+        ClauseContext(ClausIE clausIE,
+                      SemanticGraphOverlay semanticGraph,
+                      Clause clause,
+                      Constituent constRoot,
+                      IndexedWord subject,
+                      SemanticGraphEdge poss,
+                      SemanticGraphEdge rcmod) {
+            this.clausIE = clausIE;
+            this.semanticGraph = semanticGraph;
+            this.clause = clause;
+            this.constRoot = constRoot;
+            this.subject = subject;
+            this.poss = poss;
+            this.rcmod = rcmod;
+        }
     }
 
+    /**
+     * The type of clause identified by each relation, in order of priority.
+     */
+    private static final RelationDispatch<ClauseHandler> CLAUSE_HANDLERS =
+            RelationDispatch.<ClauseHandler>of((clausIE, roots, edge) -> {
+            })
+                    .on(DpUtils.ANY_SUBJ, ClauseDetector::detectNsubjClause)
+                    .on(DpUtils.APPOS, ClauseDetector::detectApposClause)
+                    .on(DpUtils.POSS, ClauseDetector::detectPossessiveClause)
+                    .on(DpUtils.PARTMOD, ClauseDetector::detectPartmodClause);
+
+    /**
+     * The type of constituent selected by each relation, in order of priority.
+     */
+    private static final RelationDispatch<ConstituentHandler> CONSTITUENT_HANDLERS =
+            RelationDispatch.<ConstituentHandler>of((context, edge) -> {
+            })
+                    .on(DpUtils.COMPLM | DpUtils.MARK, ClauseDetector::excludeMarker)
+                    .on(DpUtils.IOBJ, (context, edge) ->
+                            addObject(context, edge, context.clause.iobjects, Type.IOBJ))
+                    .on(DpUtils.DOBJ, (context, edge) ->
+                            addObject(context, edge, context.clause.dobjects, Type.DOBJ))
+                    .on(DpUtils.CCOMP, ClauseDetector::addCcomp)
+                    .on(DpUtils.XCOMP, ClauseDetector::addXcomp)
+                    .on(DpUtils.ACOMP, ClauseDetector::addAcomp)
+                    .on(ADVERBIAL_RELATIONS | DpUtils.ADVMOD | DpUtils.PARTMOD, ClauseDetector::addAdverbial)
+                    .on(DpUtils.REL, ClauseDetector::addRel)
+                    .on(DpUtils.EXPL, (context, edge) -> context.clause.type = Clause.Type.EXISTENTIAL);
+
     private ClauseDetector() {
     }
 
@@ -57,56 +134,74 @@ final class ClauseDetector {
      * Detects clauses in the input sentence.
      */
     static void detectClauses(ClausIE clausIE) {
-        IndexedConstituent.sentSemanticGraph = clausIE.semanticGraph;
         List<IndexedWord> roots = new ArrayList<>();
-        for (SemanticGraphEdge edge : clausIE.semanticGraph.edgeIterable()) {
+        SentenceGraph graph = clausIE.graph().getSentenceGraph();
+        for (int e = 0; e < graph.edgeCount(); e++) {
             // check whether the edge identifies a clause
-            if (DpUtils.isAnySubj(edge)) {
-                // clauses with a subject
-                IndexedWord subject = edge.getDependent();
-                IndexedWord root = edge.getGovernor();
-                addNsubjClause(clausIE, roots, clausIE.clauses, subject, root, false);
-            } else if (clausIE.options.processAppositions && DpUtils.isAppos(edge)) {
-                // clauses for appositions
-                IndexedWord subject = edge.getGovernor();
-                IndexedWord object = edge.getDependent();
-                addApposClause(clausIE, subject, object);
-                roots.add(null);
-            } else if (clausIE.options.processPossessives && DpUtils.isPoss(edge)) {
-                // clauses for possessives
-                IndexedWord subject = edge.getDependent();
-                IndexedWord object = edge.getGovernor();
-                addPossessiveClause(clausIE, subject, object);
-                roots.add(null);
-            } else if (clausIE.options.processPartmods && DpUtils.isPartMod(edge)) {
-                // clauses for participial modifiers
-                IndexedWord subject = edge.getGovernor();
-                IndexedWord object = edge.getDependent();
-                addPartmodClause(clausIE, subject, object, roots);
-            }
+            SemanticGraphEdge edge = graph.edge(e);
+            CLAUSE_HANDLERS.get(graph.relation(e)).handle(clausIE, roots, edge);
         }
 
-        // postprocess clauses
-        // TODO
+        // postprocess clauses: parents are resolved on demand, each constituent needs to exclude
+        // the vertexes of the other constituents
+        ClauseAncestors ancestors = new ClauseAncestors(graph, clausIE.clauses, roots);
         for (int i = 0; i < clausIE.clauses.size(); i++) {
             Clause clause = clausIE.clauses.get(i);
+            clause.root = roots.get(i);
+            clause.ancestors = ancestors;
+            excludeVertexes(clause);
+        }
+    }
 
-            // set parents (slow and inefficient for now)
-            IndexedWord root = roots.get(i);
-            if (root != null) {
-                int index = ancestorOf(clausIE.semanticGraph, root, roots); // recursion needed to
-                // deal
-                // with xcomp; more stable
-                if (index >= 0) {
-                    // System.out.println("Clause " + clause.toString() + " has parent " +
-                    // clausIE.clauses.get(index).toString());
-                    clause.parentClause = clausIE.clauses.get(index);
-                }
-            }
+    /**
+     * Detects a clause with a subject.
+     */
+    private static void detectNsubjClause(ClausIE clausIE,
+                                          List<IndexedWord> roots,
+                                          SemanticGraphEdge edge) {
+        IndexedWord subject = edge.getDependent();
+        IndexedWord root = edge.getGovernor();
+        addNsubjClause(clausIE, roots, clausIE.clauses, subject, root, false);
+    }
 
-            // exclude vertexes (each constituent needs to excludes vertexes of the other
-            // constituents)
-            excludeVertexes(clause);
+    /**
+     * Detects a clause for an apposition.
+     */
+    private static void detectApposClause(ClausIE clausIE,
+                                          List<IndexedWord> roots,
+                                          SemanticGraphEdge edge) {
+        if (clausIE.options.processAppositions) {
+            IndexedWord subject = edge.getGovernor();
+            IndexedWord object = edge.getDependent();
+            addApposClause(clausIE, subject, object);
+            roots.add(null);
+        }
+    }
+
+    /**
+     * Detects a clause for a possessive.
+     */
+    private static void detectPossessiveClause(ClausIE clausIE,
+                                               List<IndexedWord> roots,
+                                               SemanticGraphEdge edge) {
+        if (clausIE.options.processPossessives) {
+            IndexedWord subject = edge.getDependent();
+            IndexedWord object = edge.getGovernor();
+            addPossessiveClause(clausIE, subject, object);
+            roots.add(null);
+        }
+    }
+
+    /**
+     * Detects a clause for a participial modifier.
+     */
+    private static void detectPartmodClause(ClausIE clausIE,
+                                            List<IndexedWord> roots,
+                                            SemanticGraphEdge edge) {
+        if (clausIE.options.processPartmods) {
+            IndexedWord subject = edge.getGovernor();
+            IndexedWord object = edge.getDependent();
+            addPartmodClause(clausIE, subject, object, roots);
         }
     }
 
@@ -129,22 +224,6 @@ final class ClauseDetector {
         }
     }
 
-    /**
-     * TODO
-     */
-    private static int ancestorOf(SemanticGraph semanticGraph, IndexedWord node,
-                                  List<IndexedWord> ancestors) {
-        for (SemanticGraphEdge e : semanticGraph.getIncomingEdgesSorted(node)) {
-            int index = ancestors.indexOf(node);
-            if (index >= 0)
-                return index;
-            index = ancestorOf(semanticGraph, e.getGovernor(), ancestors);
-            if (index >= 0)
-                return index;
-        }
-        return -1;
-    }
-
     /**
      * Selects constituents of a clause for clauses with internal subject or coming from a participial modifier.
      *
@@ -160,7 +239,7 @@ final class ClauseDetector {
                                        IndexedWord subject,
                                        IndexedWord clauseRoot,
                                        boolean partmod) {
-        SemanticGraph semanticGraph = new SemanticGraph(clausIE.semanticGraph);
+        SemanticGraphOverlay semanticGraph = clausIE.graph().copy();
         Options options = clausIE.options;
 
         List<SemanticGraphEdge> toRemove = new ArrayList<>();
@@ -277,9 +356,8 @@ final class ClauseDetector {
                         Type.SUBJECT));
                 rcmod = null;
             } else if (partmod && subject.tag().charAt(0) == 'V') {
-                List<SemanticGraphEdge> outsub = clausIE.semanticGraph.getOutEdgesSorted(subject);
-                SemanticGraphEdge sub = DpUtils.findFirstOfRelationOrDescendent(outsub,
-                        EnglishGrammaticalRelations.SUBJECT);
+                List<SemanticGraphEdge> outsub = clausIE.graph().getOutEdgesSorted(subject);
+                SemanticGraphEdge sub = DpUtils.findFirst(outsub, DpUtils.ANY_SUBJ_SD);
                 if (sub != null)
                     clause.constituents.add(new IndexedConstituent(semanticGraph, sub
                             .getDependent(), Type.SUBJECT));
@@ -296,15 +374,15 @@ final class ClauseDetector {
                 ((IndexedConstituent) clause.constituents.get(clause.subject)).excludedVertexes
                         .add(clauseRoot);
                 // He is the man crying the whole day.
-                List<SemanticGraphEdge> outsub = clausIE.semanticGraph.getOutEdgesSorted(subject);
-                SemanticGraphEdge coppm = DpUtils.findFirstOfRelationOrDescendent(
-                        outsub, EnglishGrammaticalRelations.COPULA
+                List<SemanticGraphEdge> outsub = clausIE.graph().getOutEdgesSorted(subject);
+                SemanticGraphEdge coppm = DpUtils.findFirst(
+                        outsub, DpUtils.ANY_COP_SD
                 );
                 if (coppm != null) {
                     ((IndexedConstituent) clause.constituents.get(clause.subject)).excludedVertexes
                             .add(coppm.getDependent());
-                    SemanticGraphEdge spm = DpUtils.findFirstOfRelationOrDescendent(
-                            outsub, EnglishGrammaticalRelations.SUBJECT
+                    SemanticGraphEdge spm = DpUtils.findFirst(
+                            outsub, DpUtils.ANY_SUBJ_SD
                     );
                     ((IndexedConstituent) clause.constituents.get(clause.subject)).excludedVertexes
                             .add(spm.getDependent());
@@ -312,172 +390,20 @@ final class ClauseDetector {
             }
 
             //------------------------Select constituents of the predicate-------------------------------------------------
+            ClauseContext context = new ClauseContext(clausIE, semanticGraph, clause, constRoot, subject,
+                    poss, rcmod);
             for (SemanticGraphEdge outgoingEdge : outgoingEdges) {
-                IndexedWord dependent = outgoingEdge.getDependent();
-
-                // to avoid compl or mark in a main clause. "I doubt if she was sure whether this was important".
-                if (DpUtils.isComplm(outgoingEdge) || DpUtils.isMark(outgoingEdge)) {
-                    ((IndexedConstituent) constRoot).getExcludedVertexes().add(dependent);
-                    //Indirect Object
-                } else if (DpUtils.isIobj(outgoingEdge)) {
-                    clause.iobjects.add(clause.constituents.size());
-                    //If it is a relative clause headed by a relative pronoun.
-                    if (dependent.tag().charAt(0) == 'W' && rcmod != null) {
-                        clause.constituents.add(
-                                createRelConstituent(
-                                        semanticGraph,
-                                        rcmod.getGovernor(),
-                                        Type.IOBJ
-                                )
-                        );
-                        ((IndexedConstituent) constRoot).getExcludedVertexes().add(dependent);
-                        rcmod = null;
-                        //to deal with the possessive relative pronoun
-                    } else if (poss != null && poss.getGovernor().equals(dependent)
-                            && rcmod != null) {
-                        clause.constituents.add(
-                                createPossConstituent(
-                                        semanticGraph,
-                                        poss,
-                                        rcmod,
-                                        dependent,
-                                        Type.IOBJ
-                                )
-                        );
-                        rcmod = null;
-                        // "regular case"
-                    } else
-                        clause.constituents.add(
-                                new IndexedConstituent(
-                                        semanticGraph,
-                                        dependent,
-                                        Type.IOBJ
-                                )
-                        );
-                    //Direct Object
-                } else if (DpUtils.isDobj(outgoingEdge)) {
-                    clause.dobjects.add(clause.constituents.size());
-                    if (dependent.tag().charAt(0) == 'W' && rcmod != null) {
-                        clause.constituents.add(
-                                createRelConstituent(
-                                        semanticGraph,
-                                        rcmod.getGovernor(),
-                                        Type.DOBJ
-                                )
-                        );
-                        ((IndexedConstituent) constRoot).getExcludedVertexes().add(dependent);
-                        rcmod = null;
-                    } else if (poss != null && poss.getGovernor().equals(dependent) && rcmod != null) {
-                        clause.constituents.add(
-                                createPossConstituent(
-                                        semanticGraph,
-                                        poss,
-                                        rcmod,
-                                        dependent,
-                                        Type.DOBJ
-                                )
-                        );
-                        rcmod = null;
-                    } else
-                        clause.constituents.add(
-                                new IndexedConstituent(
-                                        semanticGraph,
-                                        dependent,
-                                        Type.DOBJ
-                                )
-                        );
-                    //CCOMPS
-                } else if (DpUtils.isCcomp(outgoingEdge)) {
-                    clause.ccomps.add(clause.constituents.size());
-                    clause.constituents.add(
-                            new IndexedConstituent(
-                                    semanticGraph,
-                                    dependent,
-                                    Type.CCOMP
-                            )
-                    );
-                    //XCOMPS (Note: Need special treatment, they won't form a new clause so optional/obligatory constituents
-                    // are managed within the context of its parent clause)
-                } else if (DpUtils.isXcomp(outgoingEdge)) {
-                    List<IndexedWord> xcomproots = new ArrayList<>();
-                    List<Clause> xcompclauses = new ArrayList<>();
-                    IndexedWord xcompsubject = null;
-                    SemanticGraphEdge xcsub = DpUtils.findFirstOfRelationOrDescendent(
-                            semanticGraph.getOutEdgesSorted(outgoingEdge.getDependent()),
-                            EnglishGrammaticalRelations.SUBJECT
-                    );
-                    if (xcsub != null)
-                        xcompsubject = xcsub.getDependent();
-                    //Need to identify the internal structure of the clause
-                    addNsubjClause(
-                            clausIE, xcomproots, xcompclauses, subject, outgoingEdge.getDependent(), false
-                    );
-                    for (Clause cl : xcompclauses) {
-                        if (xcompsubject != null) {
-                            int verb = cl.verb;
-                            ((IndexedConstituent) cl.constituents.get(verb)).additionalVertexes
-                                    .add(xcompsubject);
-                        }
-                        excludeVertexes(cl);
-                    }
-                    clause.xcomps.add(clause.constituents.size());
-                    clause.constituents.add(new XcompConstituent(semanticGraph, dependent,
-                            Type.XCOMP, xcompclauses));
-                    //Adjective complement
-                } else if (DpUtils.isAcomp(outgoingEdge)) {
-                    clause.acomps.add(clause.constituents.size());
-                    clause.constituents.add(new IndexedConstituent(semanticGraph, dependent,
-                            Type.ACOMP));
-                    //Various Adverbials
-                } else if ((DpUtils.isAnyPrep(outgoingEdge)
-                        || DpUtils.isPobj(outgoingEdge)
-                        || DpUtils.isTmod(outgoingEdge)
-                        || DpUtils.isAdvcl(outgoingEdge)
-                        || DpUtils.isNpadvmod(outgoingEdge) || DpUtils
-                        .isPurpcl(outgoingEdge))
-
-                        ) {
-                    int constint = clause.constituents.size();
-                    clause.adverbials.add(constint);
-                    clause.constituents.add(new IndexedConstituent(
-                            semanticGraph, dependent,
-                            Type.ADVERBIAL));
-                    //Advmod
-                } else if (DpUtils.isAdvmod(outgoingEdge)) {
-                    int constint = clause.constituents.size();
-                    clause.adverbials.add(constint);
-                    clause.constituents.add(new IndexedConstituent(semanticGraph, dependent,
-                            Type.ADVERBIAL));
-                    //Partmod
-                } else if (DpUtils.isPartMod(outgoingEdge)) {
-                    int constint = clause.constituents.size();
-                    clause.adverbials.add(constint);
-                    clause.constituents.add(new IndexedConstituent(semanticGraph, dependent,
-                            Type.ADVERBIAL));
-                    //Rel appears in certain cases when relative pronouns act as prepositional objects "I saw the house in which I grew".
-                    // We generate a new clause out of the relative clause
-                } else if (DpUtils.isRel(outgoingEdge)) {
-                    processRel(outgoingEdge, semanticGraph, dependent, rcmod, clause);
-                    rcmod = null;
-
-                    //To process passive voice (!Not done here)
-                    // } else if (DpUtils.isAgent(outgoingEdge))
-                    //     clause.agent = dependent;
-                    // else if (DpUtils.isMark(outgoingEdge) || DpUtils.isComplm(outgoingEdge)) {
-                    // clause.subordinateConjunction = dependent;
-                } else if (DpUtils.isExpl(outgoingEdge))
-                    clause.type = Clause.Type.EXISTENTIAL;
-                //  else if (options.processCcAllVerbs && DpUtils.isAnyConj(outgoingEdge))
-                //     coordinatedConjunctions.add(dependent);
+                CONSTITUENT_HANDLERS.get(outgoingEdge).handle(context, outgoingEdge);
             }
+            rcmod = context.rcmod;
 
             //------------------------To process relative clauses with implicit (zero) relative pronoun-------------------------
             if (rcmod != null) { //"I saw the house I grew up in", "I saw
                 // the house I like", "I saw the man I gave the book" ...
                 Constituent candidate = searchCandidateAdverbial(clause);
                 if (candidate != null) {
-                    SemanticGraph newSemanticGraph = new SemanticGraph(
-                            ((IndexedConstituent) candidate).getSemanticGraph());
+                    SemanticGraphOverlay newSemanticGraph =
+                            ((IndexedConstituent) candidate).getGraph().copy();
                     IndexedConstituent tmpconst = createRelConstituent(newSemanticGraph,
                             rcmod.getGovernor(), Type.ADVERBIAL);
                     newSemanticGraph.addEdge(((IndexedConstituent) candidate).getRoot(),
@@ -485,7 +411,7 @@ final class ClauseDetector {
                             rcmod.getWeight(), false);
                     ((IndexedConstituent) candidate).getExcludedVertexes().addAll(
                             tmpconst.getExcludedVertexes());
-                    ((IndexedConstituent) candidate).setSemanticGraph(newSemanticGraph);
+                    ((IndexedConstituent) candidate).setGraph(newSemanticGraph);
                     rcmod = null;
                 } else if (DpUtils.findFirstOfRelation(outgoingEdges,
                         EnglishGrammaticalRelations.DIRECT_OBJECT) == null) {
@@ -528,6 +454,145 @@ final class ClauseDetector {
         }
     }
 
+    /**
+     * Excludes compl or mark from the root of the clause, to avoid them in a main clause. "I doubt
+     * if she was sure whether this was important".
+     */
+    private static void excludeMarker(ClauseContext context,
+                                      SemanticGraphEdge edge) {
+        ((IndexedConstituent) context.constRoot).getExcludedVertexes().add(edge.getDependent());
+    }
+
+    /**
+     * Adds an indirect or direct object.
+     *
+     * @param objects The list of objects of the clause of the given type
+     * @param type    The type of the object
+     */
+    private static void addObject(ClauseContext context,
+                                  SemanticGraphEdge edge,
+                                  List<Integer> objects,
+                                  Type type) {
+        IndexedWord dependent = edge.getDependent();
+        Clause clause = context.clause;
+        objects.add(clause.constituents.size());
+        //If it is a relative clause headed by a relative pronoun.
+        if (dependent.tag().charAt(0) == 'W' && context.rcmod != null) {
+            clause.constituents.add(
+                    createRelConstituent(
+                            context.semanticGraph,
+                            context.rcmod.getGovernor(),
+                            type
+                    )
+            );
+            ((IndexedConstituent) context.constRoot).getExcludedVertexes().add(dependent);
+            context.rcmod = null;
+            //to deal with the possessive relative pronoun
+        } else if (context.poss != null && context.poss.getGovernor().equals(dependent)
+                && context.rcmod != null) {
+            clause.constituents.add(
+                    createPossConstituent(
+                            context.semanticGraph,
+                            context.poss,
+                            context.rcmod,
+                            dependent,
+                            type
+                    )
+            );
+            context.rcmod = null;
+            // "regular case"
+        } else
+            clause.constituents.add(
+                    new IndexedConstituent(
+                            context.semanticGraph,
+                            dependent,
+                            type
+                    )
+            );
+    }
+
+    /**
+     * Adds a clausal complement.
+     */
+    private static void addCcomp(ClauseContext context,
+                                 SemanticGraphEdge edge) {
+        Clause clause = context.clause;
+        clause.ccomps.add(clause.constituents.size());
+        clause.constituents.add(
+                new IndexedConstituent(
+                        context.semanticGraph,
+                        edge.getDependent(),
+                        Type.CCOMP
+                )
+        );
+    }
+
+    /**
+     * Adds an open clausal complement. Xcomps need special treatment: they do not form a new clause,
+     * so optional/obligatory constituents are managed within the context of their parent clause.
+     */
+    private static void addXcomp(ClauseContext context,
+                                 SemanticGraphEdge edge) {
+        IndexedWord dependent = edge.getDependent();
+        List<IndexedWord> xcomproots = new ArrayList<>();
+        List<Clause> xcompclauses = new ArrayList<>();
+        IndexedWord xcompsubject = null;
+        SemanticGraphEdge xcsub = DpUtils.findFirst(
+                context.semanticGraph.getOutEdgesSorted(dependent),
+                DpUtils.ANY_SUBJ_SD
+        );
+        if (xcsub != null)
+            xcompsubject = xcsub.getDependent();
+        //Need to identify the internal structure of the clause
+        addNsubjClause(
+                context.clausIE, xcomproots, xcompclauses, context.subject, dependent, false
+        );
+        for (Clause cl : xcompclauses) {
+            if (xcompsubject != null) {
+                int verb = cl.verb;
+                ((IndexedConstituent) cl.constituents.get(verb)).additionalVertexes
+                        .add(xcompsubject);
+            }
+            excludeVertexes(cl);
+        }
+        Clause clause = context.clause;
+        clause.xcomps.add(clause.constituents.size());
+        clause.constituents.add(new XcompConstituent(context.semanticGraph, dependent,
+                Type.XCOMP, xcompclauses));
+    }
+
+    /**
+     * Adds an adjective complement.
+     */
+    private static void addAcomp(ClauseContext context,
+                                 SemanticGraphEdge edge) {
+        Clause clause = context.clause;
+        clause.acomps.add(clause.constituents.size());
+        clause.constituents.add(new IndexedConstituent(context.semanticGraph, edge.getDependent(),
+                Type.ACOMP));
+    }
+
+    /**
+     * Adds an adverbial (prepositions, advmod, partmod and various others).
+     */
+    private static void addAdverbial(ClauseContext context,
+                                     SemanticGraphEdge edge) {
+        Clause clause = context.clause;
+        clause.adverbials.add(clause.constituents.size());
+        clause.constituents.add(new IndexedConstituent(context.semanticGraph, edge.getDependent(),
+                Type.ADVERBIAL));
+    }
+
+    /**
+     * Rel appears in certain cases when relative pronouns act as prepositional objects "I saw the
+     * house in which I grew". We generate a new clause out of the relative clause.
+     */
+    private static void addRel(ClauseContext context,
+                               SemanticGraphEdge edge) {
+        processRel(edge, context.semanticGraph, edge.getDependent(), context.rcmod, context.clause);
+        context.rcmod = null;
+    }
+
     /**
      * Process relation rel, it creates a new clause out of the relative clause.
      *
@@ -538,11 +603,11 @@ final class ClauseDetector {
      * @param clause        A clause
      */
     private static void processRel(SemanticGraphEdge outgoingEdge,
-                                   SemanticGraph semanticGraph,
+                                   SemanticGraphOverlay semanticGraph,
                                    IndexedWord dependent,
                                    SemanticGraphEdge rcmod,
                                    Clause clause) {
-        SemanticGraph newSemanticGraph = new SemanticGraph(semanticGraph);
+        SemanticGraphOverlay newSemanticGraph = semanticGraph.copy();
         List<SemanticGraphEdge> outdep = newSemanticGraph.getOutEdgesSorted(dependent);
         SemanticGraphEdge pobed = DpUtils.findFirstOfRelation(
                 outdep, EnglishGrammaticalRelations.PREPOSITIONAL_OBJECT
@@ -609,7 +674,7 @@ final class ClauseDetector {
     private static Constituent searchCandidateAdverbial(Clause clause) {
         for (Constituent c : clause.constituents) {
             IndexedWord root = ((IndexedConstituent) c).getRoot();
-            if ("IN".equals(root.tag()) && !((IndexedConstituent) c).getSemanticGraph().hasChildren(root)) {
+            if ("IN".equals(root.tag()) && !((IndexedConstituent) c).getGraph().hasChildren(root)) {
                 return c;
             }
         }
@@ -625,13 +690,13 @@ final class ClauseDetector {
      * @param constGovernor The root of the constituent
      * @param type          The type of the constituent
      */
-    private static Constituent createPossConstituent(SemanticGraph semanticGraph,
+    private static Constituent createPossConstituent(SemanticGraphOverlay semanticGraph,
                                                      SemanticGraphEdge poss,
                                                      SemanticGraphEdge rcmod,
                                                      IndexedWord constGovernor,
                                                      Type type) {
 
-        SemanticGraph newSemanticGraph = new SemanticGraph(semanticGraph);
+        SemanticGraphOverlay newSemanticGraph = semanticGraph.copy();
         double weight = poss.getWeight();
         newSemanticGraph.addEdge(
                 poss.getGovernor(),
@@ -661,7 +726,7 @@ final class ClauseDetector {
      * @param root          The root of the constituent
      * @param type          The type of the constituent
      */
-    private static IndexedConstituent createRelConstituent(SemanticGraph semanticGraph,
+    private static IndexedConstituent createRelConstituent(SemanticGraphOverlay semanticGraph,
                                                            IndexedWord root,
                                                            Type type) {
         List<SemanticGraphEdge> outrcmod = semanticGraph.getOutEdgesSorted(root);
@@ -697,13 +762,13 @@ final class ClauseDetector {
         clause.verb = 1;
         clause.complement = 2;
         clause.constituents.add(
-                new IndexedConstituent(clausIE.semanticGraph, subject, Constituent.Type.SUBJECT)
+                new IndexedConstituent(clausIE.graph(), subject, Constituent.Type.SUBJECT)
         );
         clause.constituents.add(
                 new TextConstituent(clausIE.options.appositionVerb, Constituent.Type.VERB)
         );
         clause.constituents.add(
-                new IndexedConstituent(clausIE.semanticGraph, object, Constituent.Type.COMPLEMENT)
+                new IndexedConstituent(clausIE.graph(), object, Constituent.Type.COMPLEMENT)
         );
         clause.type = Clause.Type.SVC;
         clausIE.clauses.add(clause);
@@ -719,7 +784,7 @@ final class ClauseDetector {
                                             IndexedWord subject,
                                             IndexedWord object) {
         Clause clause = new Clause();
-        SemanticGraph newSemanticGraph = new SemanticGraph(clausIE.semanticGraph);
+        SemanticGraphOverlay semanticGraph = clausIE.graph();
         clause.subject = 0;
         clause.verb = 1;
         clause.dobjects.add(2);
@@ -727,21 +792,21 @@ final class ClauseDetector {
         Set<IndexedWord> excludeobj = new TreeSet<>();
 
         excludeobj.add(subject);
-        List<SemanticGraphEdge> outedobj = newSemanticGraph.getOutEdgesSorted(object);
+        List<SemanticGraphEdge> outedobj = semanticGraph.getOutEdgesSorted(object);
         excludeVertexPoss(outedobj, excludeobj, clausIE);
 
         SemanticGraphEdge rcmod = null;
         if (subject.tag().charAt(0) == 'W') {
-            IndexedWord root = newSemanticGraph.getParent(object);
+            IndexedWord root = semanticGraph.getParent(object);
             if ("IN".equals(root.tag()))
-                root = newSemanticGraph.getParent(root); // "I saw the man in whose wife I trust"
-            List<SemanticGraphEdge> inedges = newSemanticGraph.getIncomingEdgesSorted(root);
+                root = semanticGraph.getParent(root); // "I saw the man in whose wife I trust"
+            List<SemanticGraphEdge> inedges = semanticGraph.getIncomingEdgesSorted(root);
             rcmod = DpUtils.findFirstOfRelation(
                     inedges,
                     EnglishGrammaticalRelations.RELATIVE_CLAUSE_MODIFIER
             );
         } else {
-            List<SemanticGraphEdge> outedges = newSemanticGraph.getOutEdgesSorted(subject);
+            List<SemanticGraphEdge> outedges = semanticGraph.getOutEdgesSorted(subject);
             SemanticGraphEdge ps = DpUtils.findFirstOfRelation(
                     outedges,
                     EnglishGrammaticalRelations.POSSESSIVE_MODIFIER
@@ -753,7 +818,7 @@ final class ClauseDetector {
         if (rcmod != null) {
             clause.constituents.add(
                     createRelConstituent(
-                            newSemanticGraph,
+                            semanticGraph,
                             rcmod.getGovernor(),
                             Type.SUBJECT
                     )
@@ -763,7 +828,7 @@ final class ClauseDetector {
         } else {
             clause.constituents.add(
                     new IndexedConstituent(
-                            newSemanticGraph,
+                            semanticGraph,
                             subject,
                             Collections.<IndexedWord>emptySet(),
                             excludesub,
@@ -779,7 +844,7 @@ final class ClauseDetector {
         );
         clause.constituents.add(
                 new IndexedConstituent(
-                        newSemanticGraph,
+                        semanticGraph,
                         object,
                         Collections.<IndexedWord>emptySet(),
                         excludeobj,
@@ -800,13 +865,10 @@ final class ClauseDetector {
                                           Set<IndexedWord> excludeobj,
                                           ClausIE clausIE) {
         for (SemanticGraphEdge ed : outedobj) {
-            if (DpUtils.isAdvcl(ed)
-                    || DpUtils.isAdvmod(ed)
-                    || DpUtils.isAnyObj(ed) // currently everything is
-                    // excluded except prep and infmod
-                    || DpUtils.isAnySubj(ed) || DpUtils.isAux(ed) || DpUtils.isCop(ed)
-                    || DpUtils.isTmod(ed) || DpUtils.isAnyConj(ed)
-                    && clausIE.options.processCcNonVerbs)
+            long relation = DpUtils.relation(ed);
+            // currently everything is excluded except prep and infmod
+            if ((relation & EXCLUDE_RELATIONS_POSS) != 0
+                    || (relation & DpUtils.ANY_CONJ) != 0 && clausIE.options.processCcNonVerbs)
                 excludeobj.add(ed.getDependent());
         }
     }
@@ -837,19 +899,19 @@ final class ClauseDetector {
                                            IndexedWord root,
                                            IndexedWord parroot,
                                            List<IndexedWord> roots) {
-        Constituent verb = new IndexedConstituent(clausIE.semanticGraph, parroot, Type.VERB);
-        List<SemanticGraphEdge> outedges = clausIE.semanticGraph.getOutEdgesSorted(parroot);
-        SemanticGraphEdge subject = DpUtils.findFirstOfRelationOrDescendent(
+        Constituent verb = new IndexedConstituent(clausIE.graph(), parroot, Type.VERB);
+        List<SemanticGraphEdge> outedges = clausIE.graph().getOutEdgesSorted(parroot);
+        SemanticGraphEdge subject = DpUtils.findFirst(
                 outedges,
-                EnglishGrammaticalRelations.SUBJECT
+                DpUtils.ANY_SUBJ_SD
         );
         if (subject != null) {
             Constituent subjectConst = new IndexedConstituent(
-                    clausIE.semanticGraph,
+                    clausIE.graph(),
                     subject.getDependent(),
                     Type.SUBJECT
             );
-            Constituent object = new IndexedConstituent(clausIE.semanticGraph, root, Type.DOBJ);
+            Constituent object = new IndexedConstituent(clausIE.graph(), root, Type.DOBJ);
             ((IndexedConstituent) object).excludedVertexes.add(parroot);
             Clause clause = new Clause();
             clause.subject = 0;
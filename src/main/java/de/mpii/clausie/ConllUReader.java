@@ -0,0 +1,202 @@
+package de.mpii.clausie;
+
+import edu.stanford.nlp.international.Language;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.trees.GrammaticalRelation;
+import edu.stanford.nlp.trees.UniversalEnglishGrammaticalRelations;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads sentences that have been parsed by a dependency parser in CoNLL-U format.
+ * <p>
+ * Each sentence is returned as {@link InputSentence} with a {@link DependencyParse} that holds
+ * the tokens (form, lemma, tag and index) and the basic dependencies, but no constituent tree.
+ * The identifier and the text of a sentence are taken from the {@code # sent_id} and
+ * {@code # text} comments; otherwise, sentences are numbered from 1 and the text is
+ * reconstructed from the tokens. Multi-word tokens and empty nodes are skipped, and enhanced
+ * dependencies are ignored. As in the dependencies produced by the Stanford parser, punctuation
+ * (relation {@code punct}, or no head) is not part of the dependency graph.
+ * <p>
+ * The tag of a token is its language-specific part of speech (column XPOS), which ClausIE
+ * expects to be a Penn Treebank tag, or its universal part of speech if XPOS is missing.
+ * Relations are interpreted as Universal Dependencies as produced by the Stanford parser (UD
+ * version 1); the relations renamed in version 2 (e.g., {@code obj}, {@code obl},
+ * {@code nsubj:pass}) are mapped to their version 1 names.
+ */
+public final class ConllUReader implements SentenceReader {
+
+    /**
+     * Relations of UD version 2 and their names in version 1.
+     */
+    private static final Map<String, String> UD2_RELATIONS = new HashMap<>();
+
+    static {
+        UD2_RELATIONS.put("obj", "dobj");
+        UD2_RELATIONS.put("obl", "nmod");
+        UD2_RELATIONS.put("obl:tmod", "nmod:tmod");
+        UD2_RELATIONS.put("obl:npmod", "nmod:npmod");
+        UD2_RELATIONS.put("nsubj:pass", "nsubjpass");
+        UD2_RELATIONS.put("csubj:pass", "csubjpass");
+        UD2_RELATIONS.put("aux:pass", "auxpass");
+        UD2_RELATIONS.put("fixed", "mwe");
+        UD2_RELATIONS.put("flat", "compound");
+    }
+
+    private final LineSource lines;
+    private int sentences;
+    private int lineNumber;
+
+    public ConllUReader(LineSource lines) {
+        this.lines = lines;
+    }
+
+    @Override
+    public InputSentence next() throws IOException {
+        String id = null;
+        String text = null;
+        List<String[]> rows = new ArrayList<>();
+        lineNumber = 0;
+        while (lines.next()) {
+            if (lines.isBlank()) {
+                if (rows.isEmpty()) {
+                    id = null;
+                    text = null;
+                    continue;
+                }
+                break;
+            }
+            if (lineNumber == 0) {
+                lineNumber = lines.getLineNumber();
+            }
+            if (lines.isComment()) {
+                String comment = lines.text(lines.indexOf('#') + 1, lines.length());
+                if (comment.startsWith("sent_id")) {
+                    id = value(comment);
+                } else if (comment.startsWith("text ") || comment.startsWith("text=")) {
+                    text = value(comment);
+                }
+                continue;
+            }
+            String[] columns = lines.line().split("\t", -1);
+            if (columns.length < 8) {
+                throw new IOException("Line " + lines.getLineNumber() + ": expected 10 columns, found "
+                        + columns.length);
+            }
+            if (columns[0].indexOf('-') >= 0 || columns[0].indexOf('.') >= 0) {
+                continue; // multi-word token or empty node
+            }
+            rows.add(columns);
+        }
+        if (rows.isEmpty()) {
+            return null;
+        }
+        sentences++;
+        if (id == null) {
+            id = Integer.toString(sentences);
+        }
+        return toSentence(id, text, rows);
+    }
+
+    @Override
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lines.close();
+    }
+
+    private InputSentence toSentence(String id,
+                                     String text,
+                                     List<String[]> rows) throws IOException {
+        List<CoreLabel> tokens = new ArrayList<>(rows.size());
+        SemanticGraph semanticGraph = new SemanticGraph();
+        IndexedWord[] words = new IndexedWord[rows.size() + 1];
+        StringBuilder sb = text == null ? new StringBuilder() : null;
+        for (String[] columns : rows) {
+            int index = parseIndex(columns[0]);
+            if (index != tokens.size() + 1) {
+                throw new IOException("Sentence " + id + ": token " + columns[0] + " out of order");
+            }
+            CoreLabel token = new CoreLabel();
+            token.setIndex(index);
+            token.setSentIndex(sentences - 1);
+            token.setWord(columns[1]);
+            token.setValue(columns[1]);
+            token.setOriginalText(columns[1]);
+            if (!"_".equals(columns[2])) {
+                token.setLemma(columns[2]);
+            }
+            token.setTag("_".equals(columns[4]) ? columns[3] : columns[4]);
+            tokens.add(token);
+            if (!"_".equals(columns[6]) && !"punct".equals(columns[7])) {
+                words[index] = new IndexedWord(token);
+                semanticGraph.addVertex(words[index]);
+            }
+            if (sb != null) {
+                sb.append(columns[1]);
+                if (columns.length < 10 || !columns[9].contains("SpaceAfter=No")) {
+                    sb.append(' ');
+                }
+            }
+        }
+        for (String[] columns : rows) {
+            IndexedWord dependent = words[parseIndex(columns[0])];
+            if (dependent == null) {
+                continue;
+            }
+            int head = parseIndex(columns[6]);
+            if (head == 0) {
+                semanticGraph.addRoot(dependent);
+            } else if (head < words.length && words[head] != null) {
+                semanticGraph.addEdge(words[head], dependent, relation(columns[7]),
+                        Double.NEGATIVE_INFINITY, false);
+            } else {
+                throw new IOException("Sentence " + id + ": head " + head + " of token " + columns[0]
+                        + " does not exist or is punctuation");
+            }
+        }
+        if (sb != null) {
+            text = sb.toString().trim();
+        }
+        return new InputSentence(id, text, new DependencyParse(tokens, semanticGraph, null, Double.NaN));
+    }
+
+    private static int parseIndex(String s) throws IOException {
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid token index: '" + s + "'");
+        }
+    }
+
+    /**
+     * Returns the value of a comment of form {@code key = value}.
+     */
+    private static String value(String comment) {
+        int equals = comment.indexOf('=');
+        return equals >= 0 ? comment.substring(equals + 1).trim() : "";
+    }
+
+    /**
+     * Returns the relation with a given name of UD version 1 or 2.
+     */
+    static GrammaticalRelation relation(String name) {
+        String ud1 = UD2_RELATIONS.get(name);
+        if (ud1 != null) {
+            name = ud1;
+        } else if (name.startsWith("obl:")) {
+            name = "nmod:" + name.substring(4);
+        }
+        GrammaticalRelation relation = UniversalEnglishGrammaticalRelations.valueOf(name);
+        return relation != null ? relation : GrammaticalRelation.valueOf(Language.UniversalEnglish, name);
+    }
+}
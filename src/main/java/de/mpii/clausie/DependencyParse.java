@@ -0,0 +1,59 @@
+package de.mpii.clausie;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.trees.Tree;
+
+import java.util.List;
+
+/**
+ * The parse of a sentence produced by a {@link DependencyProvider}: its tokens, its dependency
+ * graph and, if the provider produces one, its constituent tree.
+ */
+public final class DependencyParse {
+
+    private final List<CoreLabel> tokens;
+    private final SemanticGraph semanticGraph;
+    private final Tree tree;
+    private final double score;
+
+    /**
+     * Creates a parse.
+     *
+     * @param tokens        The tokens of the sentence
+     * @param semanticGraph The (uncollapsed) dependency graph
+     * @param tree          The constituent tree, or {@code null}
+     * @param score         The score of the parse, or {@link Double#NaN}
+     */
+    public DependencyParse(List<CoreLabel> tokens,
+                           SemanticGraph semanticGraph,
+                           Tree tree,
+                           double score) {
+        this.tokens = tokens;
+        this.semanticGraph = semanticGraph;
+        this.tree = tree;
+        this.score = score;
+    }
+
+    public List<CoreLabel> getTokens() {
+        return tokens;
+    }
+
+    public SemanticGraph getSemanticGraph() {
+        return semanticGraph;
+    }
+
+    /**
+     * Returns the constituent tree, or {@code null} if the provider does not produce one.
+     */
+    public Tree getTree() {
+        return tree;
+    }
+
+    /**
+     * Returns the score of the parse (e.g., the PCFG score), or {@link Double#NaN}.
+     */
+    public double getScore() {
+        return score;
+    }
+}
@@ -0,0 +1,69 @@
+package de.mpii.clausie;
+
+import edu.stanford.nlp.ling.CoreLabel;
+
+import java.util.List;
+
+/**
+ * Provides the dependency parses ClausIE extracts propositions from.
+ * <p>
+ * A provider splits sentences into tokens and parses the tokens into a {@link DependencyParse}.
+ * The default provider is {@link PcfgDependencyProvider}, which uses the Stanford PCFG parser.
+ * Other parsers can be plugged into {@link ClausIEEngine} by implementing this interface; they
+ * must produce uncollapsed dependencies with the relations of the Stanford parser.
+ * <p>
+ * Implementations must be thread-safe: {@link ClausIEEngine} parses sentences on several threads
+ * with the same provider.
+ */
+public interface DependencyProvider {
+
+    /**
+     * Returns a short name of the provider for reports, e.g., {@code "pcfg"}.
+     */
+    String getName();
+
+    /**
+     * Splits a sentence into tokens.
+     */
+    List<CoreLabel> tokenize(String sentence);
+
+    /**
+     * Parses a tokenized sentence.
+     * <p>
+     * If a parse takes longer than the parse timeout of the engine, the calling thread is
+     * interrupted. Providers that support the timeout stop parsing and throw an exception in this
+     * case; the engine then calls {@link #reset()}.
+     */
+    DependencyParse parse(List<CoreLabel> tokens);
+
+    /**
+     * Returns the maximum number of tokens of a sentence the provider parses. The engine does not
+     * pass longer sentences to {@link #parse(List)} but reports them with status
+     * {@link ExtractionResult.Status#TOO_LONG}. Unbounded by default.
+     */
+    default int getMaxLength() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Discards the parsing state of the calling thread after a parse has been abandoned. Does
+     * nothing by default.
+     */
+    default void reset() {
+    }
+
+    /**
+     * Sets the statistics to which the provider adds the time of its stages (e.g., parsing and
+     * the conversion into dependencies), or {@code null} to stop measuring. Set by
+     * {@link ClausIEEngine#setStageTimes(StageTimes)}. Does nothing by default.
+     */
+    default void setStageTimes(StageTimes stageTimes) {
+    }
+
+    /**
+     * Resets the statistics kept by the provider, if any. Called by
+     * {@link ClausIEEngine#resetStatistics()}. Does nothing by default.
+     */
+    default void resetStatistics() {
+    }
+}
@@ -4,8 +4,6 @@ import edu.stanford.nlp.ling.IndexedWord;
 
 import javax.annotation.Nonnull;
 import javax.annotation.WillNotClose;
-import java.io.DataInput;
-import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashSet;
@@ -41,20 +39,19 @@ public class Dictionary {
     }
 
     /**
-     * Loads the dictionary out of an {@link InputStream}. Each line
+     * Loads the dictionary out of an {@link InputStream} (UTF-8). Each line
      * of the original file should contain an entry to the dictionary
      */
     public void load(@Nonnull @WillNotClose InputStream in) throws IOException {
-        DataInput data = new DataInputStream(in);
-        String line = data.readLine();
-        while (line != null) {
-            line = line.trim();
-            if (!line.isEmpty()) { // treat everything else as comments
-                if (Character.isLetter(line.charAt(0))) {
+        // the source is not closed, since this would close the stream
+        LineSource lines = LineSource.of(in);
+        while (lines.next()) {
+            if (!lines.isBlank()) {
+                String line = lines.text(0, lines.length());
+                if (Character.isLetter(line.charAt(0))) { // treat everything else as comments
                     words.add(line);
                 }
             }
-            line = data.readLine();
         }
     }
 
@@ -0,0 +1,182 @@
+package de.mpii.clausie;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.ling.HasWord;
+import edu.stanford.nlp.process.CoreLabelTokenFactory;
+import edu.stanford.nlp.process.DocumentPreprocessor;
+import edu.stanford.nlp.process.PTBTokenizer;
+import edu.stanford.nlp.process.TokenizerFactory;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Reads documents of running text and splits them into sentences.
+ * <p>
+ * The text is read paragraph by paragraph, where paragraphs are separated by blank lines and
+ * comment lines (starting with {@code #}) are skipped. Each paragraph is tokenized and split into
+ * sentences by the {@link DocumentPreprocessor} of CoreNLP, and each sentence is returned with
+ * its tokens, so that it is not tokenized again before parsing. Sentences are identified by
+ * {@code <docId>:<sentenceIndex>}, where the index counts the sentences of a document from 1.
+ * <p>
+ * A document is either a single paragraph ({@link #paragraphs(LineSource, boolean)}), e.g., of a
+ * stream, or a whole file ({@link #files(List)}). Only one paragraph is held in memory at a time.
+ * The tokens are those of the PTB tokenizer, as used by {@link PcfgDependencyProvider}.
+ */
+public final class DocumentReader implements SentenceReader {
+
+    private final TokenizerFactory<CoreLabel> tokenizerFactory =
+            PTBTokenizer.factory(new CoreLabelTokenFactory(), "");
+
+    /**
+     * Remaining files in file mode, or {@code null} in paragraph mode.
+     */
+    private final Iterator<Path> files;
+    private final boolean ids;
+    private LineSource lines;
+
+    private int documents;
+    private String docId;
+    private int sentenceIndex;
+
+    /**
+     * The current paragraph, its first line and its remaining sentences.
+     */
+    private String paragraph;
+    private int paragraphLine;
+    private Iterator<List<HasWord>> sentences = Collections.emptyIterator();
+
+    private DocumentReader(LineSource lines,
+                           Iterator<Path> files,
+                           boolean ids) {
+        this.lines = lines;
+        this.files = files;
+        this.ids = ids;
+    }
+
+    /**
+     * Reads each paragraph as a separate document. The documents are numbered from 1; with
+     * {@code ids}, the first line of each paragraph has form {@code <docId>\t<text>} instead.
+     */
+    public static DocumentReader paragraphs(LineSource lines,
+                                            boolean ids) {
+        return new DocumentReader(lines, null, ids);
+    }
+
+    /**
+     * Reads each file as a document, which is identified by its file name. Files are opened
+     * with {@link LineSource#open(Path)}.
+     */
+    public static DocumentReader files(List<Path> files) {
+        return new DocumentReader(null, new ArrayList<>(files).iterator(), false);
+    }
+
+    @Override
+    public InputSentence next() throws IOException {
+        while (!sentences.hasNext()) {
+            if (!nextParagraph()) {
+                return null;
+            }
+        }
+        @SuppressWarnings("unchecked")
+        List<CoreLabel> tokens = (List<CoreLabel>) (List<?>) sentences.next();
+        sentenceIndex++;
+        String text = paragraph.substring(tokens.get(0).beginPosition(),
+                tokens.get(tokens.size() - 1).endPosition());
+        return new InputSentence(docId + ':' + sentenceIndex, text, tokens);
+    }
+
+    /**
+     * Returns the number of the first line of the paragraph of the last sentence returned by
+     * {@link #next()} (in the current file in file mode).
+     */
+    @Override
+    public int getLineNumber() {
+        return paragraphLine;
+    }
+
+    /**
+     * Returns the identifier of the current document.
+     */
+    public String getDocId() {
+        return docId;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (lines != null) {
+            lines.close();
+        }
+    }
+
+    /**
+     * Reads the next paragraph, moving to the next file (in file mode) or document (in paragraph
+     * mode) as needed. Returns {@code false} at the end of the input.
+     */
+    private boolean nextParagraph() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            if (lines == null) {
+                if (!files.hasNext()) {
+                    return false;
+                }
+                Path file = files.next();
+                lines = LineSource.open(file);
+                startDocument(file.getFileName().toString());
+            }
+            while (lines.next()) {
+                if (lines.isBlank()) {
+                    if (sb.length() > 0) {
+                        break;
+                    }
+                    continue;
+                }
+                if (lines.isComment()) {
+                    continue;
+                }
+                int from = 0;
+                if (sb.length() == 0) {
+                    paragraphLine = lines.getLineNumber();
+                    if (files == null) {
+                        if (ids) {
+                            int tabIndex = lines.indexOf('\t');
+                            if (tabIndex < 0) {
+                                throw new IOException("Line " + paragraphLine + ": missing document id");
+                            }
+                            startDocument(lines.text(0, tabIndex));
+                            from = tabIndex + 1;
+                        } else {
+                            startDocument(Integer.toString(documents + 1));
+                        }
+                    }
+                } else {
+                    sb.append(' ');
+                }
+                sb.append(lines.text(from, lines.length()));
+            }
+            if (sb.length() > 0) {
+                paragraph = sb.toString();
+                DocumentPreprocessor preprocessor = new DocumentPreprocessor(new StringReader(paragraph));
+                preprocessor.setTokenizerFactory(tokenizerFactory);
+                sentences = preprocessor.iterator();
+                return true;
+            }
+            if (files == null) {
+                return false;
+            }
+            lines.close();
+            lines = null;
+        }
+    }
+
+    private void startDocument(String id) {
+        documents++;
+        docId = id;
+        sentenceIndex = 0;
+    }
+}
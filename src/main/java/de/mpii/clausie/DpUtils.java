@@ -23,6 +23,162 @@ public final class DpUtils {
         throw new AssertionError("No instances allowed!");
     }
 
+    // -- relation codes
+    // --------------------------------------------------------------------------
+
+    // Each relation is classified once into a code with one bit per relation checked by ClausIE.
+    // The bits below hold if the relation equals the one of the same name.
+    static final long NSUBJ = 1L << 0;
+    static final long CSUBJ = 1L << 1;
+    static final long CSUBJPASS = 1L << 2;
+    static final long NSUBJPASS = 1L << 3;
+    static final long XSUBJ = 1L << 4;
+    static final long POBJ = 1L << 5;
+    static final long DOBJ = 1L << 6;
+    static final long IOBJ = 1L << 7;
+    static final long NEG = 1L << 8;
+    static final long PRT = 1L << 9;
+    static final long APPOS = 1L << 10;
+    static final long XCOMP = 1L << 11;
+    static final long AGENT = 1L << 12;
+    static final long EXPL = 1L << 13;
+    static final long ACOMP = 1L << 14;
+    static final long COP = 1L << 15;
+    static final long ADVCL = 1L << 16;
+    static final long RCMOD = 1L << 17;
+    static final long CCOMP = 1L << 18;
+    static final long ADVMOD = 1L << 19;
+    static final long NPADVMOD = 1L << 20;
+    static final long MARK = 1L << 21;
+    static final long PCOMP = 1L << 22;
+    static final long POSS = 1L << 23;
+    static final long POSSESSIVE = 1L << 24;
+    static final long TMOD = 1L << 25;
+    static final long PRECONJ = 1L << 26;
+    static final long CC = 1L << 27;
+    static final long CASE = 1L << 28;
+    static final long PUNCT = 1L << 29;
+    static final long AUX = 1L << 30;
+    static final long AUXPASS = 1L << 31;
+    static final long REL = 1L << 32;
+    static final long MWE = 1L << 33;
+    static final long PARATAXIS = 1L << 34;
+    static final long PREDET = 1L << 35;
+
+    // Relations of the Stanford Dependencies that are represented by others in the Universal
+    // Dependencies (see isPartMod, isInfmod, isPurpcl and isComplm).
+    static final long PARTMOD = CCOMP;
+    static final long INFMOD = CCOMP;
+    static final long PURPCL = ADVCL;
+    static final long COMPLM = MARK;
+
+    // The bits below hold if the relation is the given relation or one of its descendants. Bits
+    // ending in _SD refer to the relations of the Stanford Dependencies (EnglishGrammaticalRelations).
+    static final long ANY_SUBJ = 1L << 36;
+    static final long ANY_OBJ = 1L << 37;
+    static final long ANY_PREP = 1L << 38;
+    static final long ANY_CONJ = 1L << 39;
+    static final long ANY_AUX_SD = 1L << 40;
+    static final long ANY_AUXPASS_SD = 1L << 41;
+    static final long ANY_SUBJ_SD = 1L << 42;
+    static final long ANY_COP_SD = 1L << 43;
+    static final long ANY_ADVMOD_SD = 1L << 44;
+    static final long ANY_NEG_SD = 1L << 45;
+    static final long ANY_EXPL_SD = 1L << 46;
+    static final long ANY_CC_SD = 1L << 47;
+
+    /**
+     * Maximum number of relations whose codes are cached.
+     */
+    private static final int MAX_CODES = 1024;
+
+    /**
+     * Codes of the relations classified so far, by identity. The map is replaced (never modified)
+     * when a relation is added, so that it can be read without locking.
+     */
+    private static volatile Map<GrammaticalRelation, Long> codes = new IdentityHashMap<>();
+
+    /**
+     * Returns the code of the relation of an edge (see the bits above).
+     */
+    static long relation(SemanticGraphEdge edge) {
+        return code(edge.getRelation());
+    }
+
+    /**
+     * Returns the code of a relation (see the bits above).
+     */
+    static long code(GrammaticalRelation relation) {
+        Long code = codes.get(relation);
+        return code != null ? code : addCode(relation);
+    }
+
+    private static synchronized long addCode(GrammaticalRelation relation) {
+        Long code = codes.get(relation);
+        if (code == null) {
+            code = classify(relation);
+            if (codes.size() < MAX_CODES) {
+                Map<GrammaticalRelation, Long> newCodes = new IdentityHashMap<>(codes);
+                newCodes.put(relation, code);
+                codes = newCodes;
+            }
+        }
+        return code;
+    }
+
+    private static long classify(GrammaticalRelation relation) {
+        long code = 0;
+        code |= UniversalEnglishGrammaticalRelations.NOMINAL_SUBJECT.equals(relation) ? NSUBJ : 0;
+        code |= UniversalEnglishGrammaticalRelations.CLAUSAL_SUBJECT.equals(relation) ? CSUBJ : 0;
+        code |= UniversalEnglishGrammaticalRelations.CLAUSAL_PASSIVE_SUBJECT.equals(relation) ? CSUBJPASS : 0;
+        code |= UniversalEnglishGrammaticalRelations.NOMINAL_PASSIVE_SUBJECT.equals(relation) ? NSUBJPASS : 0;
+        code |= UniversalEnglishGrammaticalRelations.SEMANTIC_DEPENDENT.equals(relation) ? XSUBJ : 0;
+        code |= EnglishGrammaticalRelations.PREPOSITIONAL_OBJECT.equals(relation) ? POBJ : 0;
+        code |= UniversalEnglishGrammaticalRelations.DIRECT_OBJECT.equals(relation) ? DOBJ : 0;
+        code |= UniversalEnglishGrammaticalRelations.INDIRECT_OBJECT.equals(relation) ? IOBJ : 0;
+        code |= UniversalEnglishGrammaticalRelations.NEGATION_MODIFIER.equals(relation) ? NEG : 0;
+        code |= UniversalEnglishGrammaticalRelations.PHRASAL_VERB_PARTICLE.equals(relation) ? PRT : 0;
+        code |= UniversalEnglishGrammaticalRelations.APPOSITIONAL_MODIFIER.equals(relation) ? APPOS : 0;
+        code |= UniversalEnglishGrammaticalRelations.XCLAUSAL_COMPLEMENT.equals(relation) ? XCOMP : 0;
+        code |= UniversalEnglishGrammaticalRelations.AGENT.equals(relation) ? AGENT : 0;
+        code |= UniversalEnglishGrammaticalRelations.EXPLETIVE.equals(relation) ? EXPL : 0;
+        code |= EnglishGrammaticalRelations.ADJECTIVAL_COMPLEMENT.equals(relation) ? ACOMP : 0;
+        code |= UniversalEnglishGrammaticalRelations.COPULA.equals(relation) ? COP : 0;
+        code |= UniversalEnglishGrammaticalRelations.ADV_CLAUSE_MODIFIER.equals(relation) ? ADVCL : 0;
+        code |= UniversalEnglishGrammaticalRelations.RELATIVE_CLAUSE_MODIFIER.equals(relation) ? RCMOD : 0;
+        code |= UniversalEnglishGrammaticalRelations.CLAUSAL_COMPLEMENT.equals(relation) ? CCOMP : 0;
+        code |= UniversalEnglishGrammaticalRelations.ADVERBIAL_MODIFIER.equals(relation) ? ADVMOD : 0;
+        code |= UniversalEnglishGrammaticalRelations.NP_ADVERBIAL_MODIFIER.equals(relation) ? NPADVMOD : 0;
+        code |= UniversalEnglishGrammaticalRelations.MARKER.equals(relation) ? MARK : 0;
+        code |= EnglishGrammaticalRelations.PREPOSITIONAL_COMPLEMENT.equals(relation) ? PCOMP : 0;
+        code |= UniversalEnglishGrammaticalRelations.POSSESSION_MODIFIER.equals(relation) ? POSS : 0;
+        code |= EnglishGrammaticalRelations.POSSESSIVE_MODIFIER.equals(relation) ? POSSESSIVE : 0;
+        code |= UniversalEnglishGrammaticalRelations.TEMPORAL_MODIFIER.equals(relation) ? TMOD : 0;
+        code |= UniversalEnglishGrammaticalRelations.PRECONJUNCT.equals(relation) ? PRECONJ : 0;
+        code |= UniversalEnglishGrammaticalRelations.COORDINATION.equals(relation) ? CC : 0;
+        code |= UniversalEnglishGrammaticalRelations.CASE_MARKER.equals(relation) ? CASE : 0;
+        code |= UniversalEnglishGrammaticalRelations.PUNCTUATION.equals(relation) ? PUNCT : 0;
+        code |= UniversalEnglishGrammaticalRelations.AUX_MODIFIER.equals(relation) ? AUX : 0;
+        code |= UniversalEnglishGrammaticalRelations.AUX_PASSIVE_MODIFIER.equals(relation) ? AUXPASS : 0;
+        code |= UniversalEnglishGrammaticalRelations.RELATIVE.equals(relation) ? REL : 0;
+        code |= UniversalEnglishGrammaticalRelations.MULTI_WORD_EXPRESSION.equals(relation) ? MWE : 0;
+        code |= UniversalEnglishGrammaticalRelations.PARATAXIS.equals(relation) ? PARATAXIS : 0;
+        code |= UniversalEnglishGrammaticalRelations.PREDETERMINER.equals(relation) ? PREDET : 0;
+        code |= UniversalEnglishGrammaticalRelations.SUBJECT.isAncestor(relation) ? ANY_SUBJ : 0;
+        code |= UniversalEnglishGrammaticalRelations.OBJECT.isAncestor(relation) ? ANY_OBJ : 0;
+        code |= EnglishGrammaticalRelations.PREPOSITIONAL_MODIFIER.isAncestor(relation) ? ANY_PREP : 0;
+        code |= UniversalEnglishGrammaticalRelations.CONJUNCT.isAncestor(relation) ? ANY_CONJ : 0;
+        code |= EnglishGrammaticalRelations.AUX_MODIFIER.isAncestor(relation) ? ANY_AUX_SD : 0;
+        code |= EnglishGrammaticalRelations.AUX_PASSIVE_MODIFIER.isAncestor(relation) ? ANY_AUXPASS_SD : 0;
+        code |= EnglishGrammaticalRelations.SUBJECT.isAncestor(relation) ? ANY_SUBJ_SD : 0;
+        code |= EnglishGrammaticalRelations.COPULA.isAncestor(relation) ? ANY_COP_SD : 0;
+        code |= EnglishGrammaticalRelations.ADVERBIAL_MODIFIER.isAncestor(relation) ? ANY_ADVMOD_SD : 0;
+        code |= EnglishGrammaticalRelations.NEGATION_MODIFIER.isAncestor(relation) ? ANY_NEG_SD : 0;
+        code |= EnglishGrammaticalRelations.EXPLETIVE.isAncestor(relation) ? ANY_EXPL_SD : 0;
+        code |= EnglishGrammaticalRelations.COORDINATION.isAncestor(relation) ? ANY_CC_SD : 0;
+        return code;
+    }
+
     /**
      * Finds the first occurrence of a grammatical relation in a set of edges.
      */
@@ -49,10 +205,24 @@ public final class DpUtils {
         return null;
     }
 
+    /**
+     * Finds the first edge in a set of edges whose relation has one of the given bits (see the
+     * bits above).
+     */
+    static SemanticGraphEdge findFirst(List<SemanticGraphEdge> edges,
+                                       long code) {
+        for (SemanticGraphEdge e : edges) {
+            if ((relation(e) & code) != 0) {
+                return e;
+            }
+        }
+        return null;
+    }
+
     /**
      * Finds the first occurrence of a grammatical relation or its descendants for a relative pronoun.
      */
-    public static SemanticGraphEdge findDescendantRelativeRelation(SemanticGraph semanticGraph,
+    public static SemanticGraphEdge findDescendantRelativeRelation(SemanticGraphOverlay semanticGraph,
                                                                    IndexedWord root,
                                                                    GrammaticalRelation rel) {
         List<SemanticGraphEdge> outedges = semanticGraph.getOutEdgesSorted(root);
@@ -79,6 +249,21 @@ public final class DpUtils {
         return result;
     }
 
+    /**
+     * Finds all edges in a set of edges whose relation has one of the given bits (see the bits
+     * above).
+     */
+    static List<SemanticGraphEdge> getEdges(List<SemanticGraphEdge> edges,
+                                            long code) {
+        List<SemanticGraphEdge> result = new ArrayList<>();
+        for (SemanticGraphEdge e : edges) {
+            if ((relation(e) & code) != 0) {
+                result.add(e);
+            }
+        }
+        return result;
+    }
+
     /**
      * Checks if a given grammatical relation is contained in a set of edges.
      */
@@ -91,77 +276,77 @@ public final class DpUtils {
      * Checks if a given edge holds a subject relation.
      */
     public static boolean isAnySubj(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.SUBJECT.isAncestor(edge.getRelation());
+        return (relation(edge) & ANY_SUBJ) != 0;
     }
 
     /**
      * Checks if a given edge holds a nominal subject relation.
      */
     public static boolean isNsubj(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.NOMINAL_SUBJECT.equals(edge.getRelation());
+        return (relation(edge) & NSUBJ) != 0;
     }
 
     /**
      * Checks if a given edge holds a clausal subject relation.
      */
     public static boolean isCsubj(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.CLAUSAL_SUBJECT.equals(edge.getRelation());
+        return (relation(edge) & CSUBJ) != 0;
     }
 
     /**
      * Checks if a given edge holds a clausal passive subject relation.
      */
     public static boolean isCsubjpass(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.CLAUSAL_PASSIVE_SUBJECT.equals(edge.getRelation());
+        return (relation(edge) & CSUBJPASS) != 0;
     }
 
     /**
      * Checks if a given edge holds a nominal passive subject relation.
      */
     public static boolean isNsubjpass(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.NOMINAL_PASSIVE_SUBJECT.equals(edge.getRelation());
+        return (relation(edge) & NSUBJPASS) != 0;
     }
 
     /**
      * Checks if a given edge holds an external subject relation of an xcomp relation.
      */
     public static boolean isXsubj(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.SEMANTIC_DEPENDENT.equals(edge.getRelation());
+        return (relation(edge) & XSUBJ) != 0;
     }
 
     /**
      * Checks if a given edge holds an object relation.
      */
     public static boolean isAnyObj(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.OBJECT.isAncestor(edge.getRelation());
+        return (relation(edge) & ANY_OBJ) != 0;
     }
 
     /**
      * Checks if a given edge holds a prepositional object relation.
      */
     public static boolean isPobj(SemanticGraphEdge edge) {
-        return EnglishGrammaticalRelations.PREPOSITIONAL_OBJECT.equals(edge.getRelation());
+        return (relation(edge) & POBJ) != 0;
     }
 
     /**
      * Checks if a given edge holds a direct object relation.
      */
     public static boolean isDobj(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.DIRECT_OBJECT.equals(edge.getRelation());
+        return (relation(edge) & DOBJ) != 0;
     }
 
     /**
      * Checks if a given edge holds an indirect object relation.
      */
     public static boolean isIobj(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.INDIRECT_OBJECT.equals(edge.getRelation());
+        return (relation(edge) & IOBJ) != 0;
     }
 
     /**
      * Checks if a given edge holds a negation relation.
      */
     static boolean isNeg(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.NEGATION_MODIFIER.equals(edge.getRelation());
+        return (relation(edge) & NEG) != 0;
     }
 
     /**
@@ -175,14 +360,14 @@ public final class DpUtils {
      * Checks if a given edge holds a phrasal verb particle relation.
      */
     static boolean isPrt(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.PHRASAL_VERB_PARTICLE.equals(edge.getRelation());
+        return (relation(edge) & PRT) != 0;
     }
 
     /**
      * Checks if a given edge holds an apposittional relation.
      */
     static boolean isAppos(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.APPOSITIONAL_MODIFIER.equals(edge.getRelation());
+        return (relation(edge) & APPOS) != 0;
     }
 
     /**
@@ -197,7 +382,7 @@ public final class DpUtils {
      * Checks if a given edge holds a xcomp relation.
      */
     public static boolean isXcomp(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.XCLAUSAL_COMPLEMENT.equals(edge.getRelation());
+        return (relation(edge) & XCOMP) != 0;
     }
 
     /**
@@ -212,182 +397,196 @@ public final class DpUtils {
      * Checks if a given edge holds an agent relation.
      */
     public static boolean isAgent(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.AGENT.equals(edge.getRelation());
+        return (relation(edge) & AGENT) != 0;
     }
 
     /**
      * Checks if a given edge holds an expletive relation.
      */
     public static boolean isExpl(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.EXPLETIVE.equals(edge.getRelation());
+        return (relation(edge) & EXPL) != 0;
     }
 
     /**
      * Checks if a given edge holds an adjectival complement relation.
      */
     public static boolean isAcomp(SemanticGraphEdge edge) {
-        return EnglishGrammaticalRelations.ADJECTIVAL_COMPLEMENT.equals(edge.getRelation());
+        return (relation(edge) & ACOMP) != 0;
     }
 
     /**
      * Checks if a given edge holds a prepositional modifier relation.
      */
     public static boolean isAnyPrep(SemanticGraphEdge edge) {
-        return EnglishGrammaticalRelations.PREPOSITIONAL_MODIFIER.isAncestor(edge.getRelation());
+        return (relation(edge) & ANY_PREP) != 0;
     }
 
     /**
      * Checks if a given edge holds a copular relation.
      */
     public static boolean isCop(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.COPULA.equals(edge.getRelation());
+        return (relation(edge) & COP) != 0;
     }
 
     /**
      * Checks if a given edge holds an adverbial clausal relation.
      */
     public static boolean isAdvcl(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.ADV_CLAUSE_MODIFIER.equals(edge.getRelation());
+        return (relation(edge) & ADVCL) != 0;
     }
 
     /**
      * Checks if a given edge holds a relative clause modifier relation.
      */
     public static boolean isRcmod(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.RELATIVE_CLAUSE_MODIFIER.equals(edge.getRelation());
+        return (relation(edge) & RCMOD) != 0;
     }
 
     /**
      * Checks if a given edge holds a clausal complement relation.
      */
     public static boolean isCcomp(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.CLAUSAL_COMPLEMENT.equals(edge.getRelation());
+        return (relation(edge) & CCOMP) != 0;
     }
 
     /**
      * Checks if a given edge holds an adverbial modifier relation.
      */
     public static boolean isAdvmod(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.ADVERBIAL_MODIFIER.equals(edge.getRelation());
+        return (relation(edge) & ADVMOD) != 0;
     }
 
     /**
      * Checks if a given edge holds an np adverbial modifier relation.
      */
     public static boolean isNpadvmod(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.NP_ADVERBIAL_MODIFIER.equals(edge.getRelation());
+        return (relation(edge) & NPADVMOD) != 0;
     }
 
     /**
      * Checks if a given edge holds a marker relation.
      */
     public static boolean isMark(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.MARKER.equals(edge.getRelation());
+        return (relation(edge) & MARK) != 0;
     }
 
     /**
      * Checks if a given edge holds a propositional complement relation.
      */
     public static boolean isPcomp(SemanticGraphEdge edge) {
-        return EnglishGrammaticalRelations.PREPOSITIONAL_COMPLEMENT.equals(edge.getRelation());
+        return (relation(edge) & PCOMP) != 0;
     }
 
     /**
      * Checks if a given edge holds a possession modifier relation.
      */
     public static boolean isPoss(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.POSSESSION_MODIFIER.equals(edge.getRelation());
+        return (relation(edge) & POSS) != 0;
     }
 
     /**
      * Checks if a given edge holds a possessive modifier relation.
      */
     public static boolean isPosse(SemanticGraphEdge edge) {
-        return EnglishGrammaticalRelations.POSSESSIVE_MODIFIER.equals(edge.getRelation());
+        return (relation(edge) & POSSESSIVE) != 0;
     }
 
     /**
      * Checks if a given edge holds a participial modifier relation.
      */
     public static boolean isPartMod(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.CLAUSAL_COMPLEMENT.equals(edge.getRelation());
+        return (relation(edge) & PARTMOD) != 0;
     }
 
     /**
      * Checks if a given edge holds a temporal modifier relation.
      */
     public static boolean isTmod(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.TEMPORAL_MODIFIER.equals(edge.getRelation());
+        return (relation(edge) & TMOD) != 0;
     }
 
     /**
      * Checks if a given edge holds a conjunct relation.
      */
     public static boolean isAnyConj(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.CONJUNCT.isAncestor(edge.getRelation());
+        return (relation(edge) & ANY_CONJ) != 0;
     }
 
     /**
      * Checks if a given edge holds a preconjunct modifier relation.
      */
     public static boolean isPreconj(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.PRECONJUNCT.equals(edge.getRelation());
+        return (relation(edge) & PRECONJ) != 0;
     }
 
     /**
      * Checks if a given edge holds a coordination relation.
      */
     public static boolean isCc(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.COORDINATION.equals(edge.getRelation());
+        return (relation(edge) & CC) != 0;
+    }
+
+    /**
+     * Checks if a given edge holds a case marking relation.
+     */
+    public static boolean isCase(SemanticGraphEdge edge) {
+        return (relation(edge) & CASE) != 0;
+    }
+
+    /**
+     * Checks if a given edge holds a punctuation relation.
+     */
+    public static boolean isPunct(SemanticGraphEdge edge) {
+        return (relation(edge) & PUNCT) != 0;
     }
 
     /**
      * Checks if a given edge holds an auxiliar modifier relation.
      */
     public static boolean isAux(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.AUX_MODIFIER.equals(edge.getRelation());
+        return (relation(edge) & AUX) != 0;
     }
 
     /**
      * Checks if a given edge holds an auxiliar passive modifier relation.
      */
     public static boolean isAuxPass(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.AUX_PASSIVE_MODIFIER.equals(edge.getRelation());
+        return (relation(edge) & AUXPASS) != 0;
     }
 
     /**
      * Checks if a given edge holds a 'rel' relation.
      */
     public static boolean isRel(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.RELATIVE.equals(edge.getRelation());
+        return (relation(edge) & REL) != 0;
     }
 
     /**
      * Checks if a given edge holds a multi word expression relation.
      */
     public static boolean isMwe(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.MULTI_WORD_EXPRESSION.equals(edge.getRelation());
+        return (relation(edge) & MWE) != 0;
     }
 
     /**
      * Checks if a given edge holds a parataxis relation.
      */
     public static boolean isParataxis(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.PARATAXIS.equals(edge.getRelation());
+        return (relation(edge) & PARATAXIS) != 0;
     }
 
     /**
      * Checks if a given edge holds an infinitival modifier relation.
      */
     public static boolean isInfmod(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.CLAUSAL_COMPLEMENT.equals(edge.getRelation());
+        return (relation(edge) & INFMOD) != 0;
     }
 
     /**
      * Checks if a given edge holds a predeterminer relation.
      */
     public static boolean isPredet(SemanticGraphEdge edge) {
-        return UniversalEnglishGrammaticalRelations.PREDETERMINER.equals(edge.getRelation());
+        return (relation(edge) & PREDET) != 0;
     }
 
     /**
@@ -398,7 +597,7 @@ public final class DpUtils {
      * <code>excludeRelations</code>, or (3) the edge has the root as parent and its relation
      * appears in <code>excludeRelationsTop</code>.
      */
-    public static void removeEdges(SemanticGraph graph,
+    public static void removeEdges(SemanticGraphOverlay graph,
                                    IndexedWord root,
                                    Collection<IndexedWord> excludeVertexes,
                                    Collection<GrammaticalRelation> excludeRelations,
@@ -419,7 +618,7 @@ public final class DpUtils {
      * This method traverses the semantic graph starting from the given root. An edge is removed if
      * its child appears in <code>excludeVertexes</code>.
      */
-    public static void removeEdges(SemanticGraph graph,
+    public static void removeEdges(SemanticGraphOverlay graph,
                                    IndexedWord root,
                                    Collection<IndexedWord> excludeVertexes) {
         removeEdges(graph, root, excludeVertexes, Collections.<GrammaticalRelation>emptySet(),
@@ -433,7 +632,7 @@ public final class DpUtils {
      * its relation appears in <code>excludeRelations</code> or the edge has the root as parent and
      * its relation appears in <code>excludeRelationsTop</code>.
      */
-    public static void removeEdges(SemanticGraph graph,
+    public static void removeEdges(SemanticGraphOverlay graph,
                                    IndexedWord root,
                                    Collection<GrammaticalRelation> excludeRelations,
                                    Collection<GrammaticalRelation> excludeRelationsTop) {
@@ -443,9 +642,9 @@ public final class DpUtils {
 
     /**
      * Implementation for
-     * {@link #removeEdges(SemanticGraph, IndexedWord, Collection, Collection, Collection)}.
+     * {@link #removeEdges(SemanticGraphOverlay, IndexedWord, Collection, Collection, Collection)}.
      */
-    private static void subgraph(SemanticGraph graph,
+    private static void subgraph(SemanticGraphOverlay graph,
                                  IndexedWord root,
                                  Collection<IndexedWord> excludeVertexes,
                                  Collection<GrammaticalRelation> excludeRelations,
@@ -467,17 +666,14 @@ public final class DpUtils {
     /**
      * Disconnects independent clauses by removing the edge representing the coordinating conjunction.
      */
-    public static void disconnectClauses(SemanticGraph graph,
+    public static void disconnectClauses(SemanticGraphOverlay graph,
                                          Constituent constituent) {
         List<SemanticGraphEdge> outedges = graph.getOutEdgesSorted(((IndexedConstituent) constituent).getRoot());
         for (SemanticGraphEdge e : outedges) {
             if (DpUtils.isAnyConj(e)) {
                 IndexedWord child = e.getDependent();
                 List<SemanticGraphEdge> outNewRoot = graph.getOutEdgesSorted(child);
-                SemanticGraphEdge sub = DpUtils.findFirstOfRelationOrDescendent(
-                        outNewRoot,
-                        UniversalEnglishGrammaticalRelations.SUBJECT
-                );
+                SemanticGraphEdge sub = findFirst(outNewRoot, ANY_SUBJ);
                 if (sub != null) {
                     graph.removeEdge(e);
                 }
@@ -488,7 +684,7 @@ public final class DpUtils {
     /**
      * Return a set of vertexes to be excluded according to a given collection of grammatical relations.
      */
-    public static Set<IndexedWord> exclude(SemanticGraph semanticGraph,
+    public static Set<IndexedWord> exclude(SemanticGraphOverlay semanticGraph,
                                            Collection<GrammaticalRelation> rels,
                                            IndexedWord root) {
         Set<IndexedWord> exclude = new TreeSet<>();
@@ -501,6 +697,23 @@ public final class DpUtils {
         return exclude;
     }
 
+    /**
+     * Return a set of vertexes to be excluded according to the relation codes (see
+     * {@link #relation(SemanticGraphEdge)}) of their edges from the root.
+     */
+    static Set<IndexedWord> exclude(SemanticGraphOverlay semanticGraph,
+                                    long relations,
+                                    IndexedWord root) {
+        Set<IndexedWord> exclude = new TreeSet<>();
+        List<SemanticGraphEdge> outedges = semanticGraph.getOutEdgesSorted(root);
+        for (SemanticGraphEdge edge : outedges) {
+            if ((relation(edge) & relations) != 0) {
+                exclude.add(edge.getDependent());
+            }
+        }
+        return exclude;
+    }
+
     /**
      * Check if an edge is descendant of any grammatical relation in the given set.
      */
@@ -0,0 +1,160 @@
+package de.mpii.clausie;
+
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.trees.Tree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of processing one sentence with {@link ClausIEEngine}.
+ * <p>
+ * A result is created once all processing steps for the sentence are completed and does not
+ * change afterwards. The parse tree and the semantic graph are the objects produced for this
+ * sentence only; they are not shared with other results and should not be modified. The only
+ * exception are results taken from a {@link ResultCache}, which share the parse, the clauses and
+ * the propositions with the results of earlier occurrences of the same sentence.
+ */
+public final class ExtractionResult {
+
+    /**
+     * Outcome of processing a sentence.
+     */
+    public enum Status {
+        /**
+         * The sentence has been processed completely.
+         */
+        OK,
+
+        /**
+         * Parsing the sentence took longer than the parse timeout of the engine and has been
+         * abandoned. The result has no parse, no clauses and no propositions.
+         */
+        TIMEOUT,
+
+        /**
+         * The sentence has more tokens than the dependency provider parses (see
+         * {@link DependencyProvider#getMaxLength()}) and has not been parsed. The result has no
+         * parse, no clauses and no propositions.
+         */
+        TOO_LONG
+    }
+
+    private final String id;
+    private final Status status;
+    private final String sentence;
+    private final Tree depTree;
+    private final SemanticGraph semanticGraph;
+    private final List<Clause> clauses;
+    private final List<Proposition> propositions;
+    private final double pcfgScore;
+
+    ExtractionResult(String id,
+                     Status status,
+                     String sentence,
+                     Tree depTree,
+                     SemanticGraph semanticGraph,
+                     List<Clause> clauses,
+                     List<Proposition> propositions,
+                     double pcfgScore) {
+        this.id = id;
+        this.status = status;
+        this.sentence = sentence;
+        this.depTree = depTree;
+        this.semanticGraph = semanticGraph;
+        this.clauses = Collections.unmodifiableList(new ArrayList<>(clauses));
+        this.propositions = Collections.unmodifiableList(new ArrayList<>(propositions));
+        this.pcfgScore = pcfgScore;
+    }
+
+    /**
+     * Creates the result for a sentence whose parse has been abandoned after the parse timeout.
+     */
+    static ExtractionResult timeout(String id,
+                                    String sentence) {
+        return unparsed(id, Status.TIMEOUT, sentence);
+    }
+
+    /**
+     * Creates the result for a sentence that is too long to be parsed.
+     */
+    static ExtractionResult tooLong(String id,
+                                    String sentence) {
+        return unparsed(id, Status.TOO_LONG, sentence);
+    }
+
+    private static ExtractionResult unparsed(String id,
+                                             Status status,
+                                             String sentence) {
+        return new ExtractionResult(id, status, sentence, null, null,
+                Collections.<Clause>emptyList(), Collections.<Proposition>emptyList(), Double.NaN);
+    }
+
+    /**
+     * Returns a result with the same parse, clauses and propositions for another occurrence of
+     * the sentence.
+     */
+    ExtractionResult withId(String id,
+                            String sentence) {
+        return new ExtractionResult(id, status, sentence, depTree, semanticGraph, clauses, propositions,
+                pcfgScore);
+    }
+
+    /**
+     * Returns the identifier of the sentence, or {@code null} if none was given.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns whether the sentence has been processed completely.
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the input sentence.
+     */
+    public String getSentence() {
+        return sentence;
+    }
+
+    /**
+     * Returns the constituent tree for the sentence, or {@code null} if it has not been parsed.
+     */
+    public Tree getDepTree() {
+        return depTree;
+    }
+
+    /**
+     * Returns the dependency tree for the sentence, or {@code null} if it has not been parsed.
+     */
+    public SemanticGraph getSemanticGraph() {
+        return semanticGraph;
+    }
+
+    /**
+     * Returns clauses in the sentence.
+     */
+    public List<Clause> getClauses() {
+        return clauses;
+    }
+
+    /**
+     * Returns the propositions generated from the clauses in the sentence.
+     */
+    public List<Proposition> getPropositions() {
+        return propositions;
+    }
+
+    /**
+     * Returns the PCFG score of the parse, or {@link Double#NaN} if the sentence was not parsed
+     * by ClausIE.
+     */
+    public double getPCFGScore() {
+        return pcfgScore;
+    }
+}
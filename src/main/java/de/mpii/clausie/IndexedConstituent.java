@@ -4,9 +4,9 @@ import edu.stanford.nlp.ling.IndexedWord;
 import edu.stanford.nlp.semgraph.SemanticGraph;
 import edu.stanford.nlp.semgraph.SemanticGraphEdge;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
-import java.util.TreeSet;
 
 /**
  * A constituent of a clause described by a {@link SemanticGraph}.
@@ -15,9 +15,11 @@ import java.util.TreeSet;
  * constituent. In some cases, additional vertexes need to be included or excluded;
  * these vertexes are also recorded within this class.
  * <p>
- * Note that the {@link SemanticGraph} may or may not match the graph of the input sentences or the
+ * Note that the semantic graph may or may not match the graph of the input sentences or the
  * other constituents of the same clause. For example, the semantic graphs are modified when
- * processing of coordinating conjunctions.
+ * processing of coordinating conjunctions. The graph is an overlay of the graph of the input
+ * sentence, which may be shared with other constituents; the public methods convert it from and
+ * to a {@link SemanticGraph}, while package-private methods work on the overlay directly.
  * <p>
  * Date: $LastChangedDate: 2013-04-23 00:04:28 +0200 (Tue, 23 Apr 2013) $
  *
@@ -27,15 +29,10 @@ public class IndexedConstituent extends Constituent {
 
     // -- member variables ------------------------------------------------------------------------
 
-    /**
-     * Semantic graph for this sentence.
-     */
-    protected static SemanticGraph sentSemanticGraph;
-
     /**
      * Semantic graph for this constituent.
      */
-    protected SemanticGraph semanticGraph;
+    protected SemanticGraphOverlay semanticGraph;
 
     /**
      * The root vertex of this constituent in {@link #semanticGraph}. This vertex and all its
@@ -76,11 +73,22 @@ public class IndexedConstituent extends Constituent {
                               Set<IndexedWord> additionalVertexes,
                               Set<IndexedWord> excludedVertexes,
                               Type type) {
+        this(new SemanticGraphOverlay(semanticGraph), root, additionalVertexes, excludedVertexes, type);
+    }
+
+    /**
+     * Constructs a new indexed constituent with an overlay of the graph of the sentence.
+     */
+    IndexedConstituent(SemanticGraphOverlay semanticGraph,
+                       IndexedWord root,
+                       Set<IndexedWord> additionalVertexes,
+                       Set<IndexedWord> excludedVertexes,
+                       Type type) {
         super(type);
         this.semanticGraph = semanticGraph;
         this.root = root;
-        this.additionalVertexes = new TreeSet<>(additionalVertexes);
-        this.excludedVertexes = new TreeSet<>(excludedVertexes);
+        this.additionalVertexes = new VertexSet(semanticGraph.getSentenceGraph(), additionalVertexes);
+        this.excludedVertexes = new VertexSet(semanticGraph.getSentenceGraph(), excludedVertexes);
     }
 
     /**
@@ -93,43 +101,68 @@ public class IndexedConstituent extends Constituent {
     public IndexedConstituent(SemanticGraph semanticGraph,
                               IndexedWord root,
                               Type type) {
-        this(semanticGraph, root, new TreeSet<>(), new TreeSet<>(), type);
+        this(new SemanticGraphOverlay(semanticGraph), root, type);
+    }
+
+    /**
+     * Constructs a simple indexed constituent with an overlay of the graph of the sentence.
+     */
+    IndexedConstituent(SemanticGraphOverlay semanticGraph,
+                       IndexedWord root,
+                       Type type) {
+        this(semanticGraph, root, Collections.<IndexedWord>emptySet(), Collections.<IndexedWord>emptySet(), type);
     }
 
     /**
-     * Creates a deep copy of this indexed constituent.
+     * Creates a deep copy of this indexed constituent. The copy has its own overlay of the
+     * graph of the sentence.
      */
     @Override
     public IndexedConstituent clone() {
         IndexedConstituent clone = new IndexedConstituent();
         clone.type = type;
-        clone.semanticGraph = new SemanticGraph(semanticGraph);
+        clone.semanticGraph = semanticGraph.copy();
         clone.root = root;
-        clone.additionalVertexes = new TreeSet<>(additionalVertexes);
-        clone.excludedVertexes = new TreeSet<>(excludedVertexes);
+        clone.additionalVertexes = new VertexSet((VertexSet) additionalVertexes);
+        clone.excludedVertexes = new VertexSet((VertexSet) excludedVertexes);
         return clone;
     }
 
     // -- getters/setters -------------------------------------------------------------------------
 
     /**
-     * Returns the semantic graph for this constituent ({@see #semanticGraph}).
+     * Returns the semantic graph for this constituent ({@see #semanticGraph}). The graph may be
+     * shared with the sentence and must not be modified; use {@link #setSemanticGraph} instead.
      */
     public SemanticGraph getSemanticGraph() {
-        return semanticGraph;
+        return semanticGraph.toSemanticGraph();
     }
 
     /**
-     * Returns the semantic graph for this sentence ({@see #sentSemanticGraph}).
+     * Returns the semantic graph for the sentence this constituent belongs to.
      */
     public SemanticGraph getSentSemanticGraph() {
-        return sentSemanticGraph;
+        return semanticGraph.getBase();
     }
 
     /**
      * Sets the semantic graph for this constituent ({@see #semanticGraph}).
      */
     public void setSemanticGraph(SemanticGraph newSemanticGraph) {
+        semanticGraph = new SemanticGraphOverlay(newSemanticGraph);
+    }
+
+    /**
+     * Returns the overlay that describes the semantic graph for this constituent.
+     */
+    SemanticGraphOverlay getGraph() {
+        return semanticGraph;
+    }
+
+    /**
+     * Sets the overlay that describes the semantic graph for this constituent.
+     */
+    void setGraph(SemanticGraphOverlay newSemanticGraph) {
         semanticGraph = newSemanticGraph;
     }
 
@@ -165,7 +198,17 @@ public class IndexedConstituent extends Constituent {
     /**
      * Checks whether this constituent is a prepositional phrase (i.e., starts with a preposition).
      */
-    public boolean isPrepositionalPhrase() { //This is a mess, find other way of fixing. This is purely heuristic. It needs to know the semantic graph for the sentence after this is fixed the member variable sentSemanticGraph can be removed
+    public boolean isPrepositionalPhrase() {
+        return isPrepositionalPhrase(new SemanticGraphOverlay(semanticGraph.getSentenceGraph()));
+    }
+
+    /**
+     * Checks whether this constituent is a prepositional phrase (i.e., starts with a preposition).
+     *
+     * @param sentSemanticGraph Unmodified overlay of the graph of the sentence this constituent
+     *                          belongs to
+     */
+    boolean isPrepositionalPhrase(SemanticGraphOverlay sentSemanticGraph) { //This is a mess, find other way of fixing. This is purely heuristic.
         List<IndexedWord> parents = semanticGraph.getParentList(root); //This is not the cleanest way semantics messed up. specially with the rel we cannot just check if the head is a preposition (return root.tag().equals("IN")) because the parser some times includes a preposition in the verbal phrase "He is about to win"
         for (IndexedWord parent : parents) {
             SemanticGraphEdge edge = semanticGraph.getEdge(parent, root);
@@ -199,7 +242,15 @@ public class IndexedConstituent extends Constituent {
      * included vertex) to excluded vertexes have been removed. Useful for proposition generation.
      */
     public SemanticGraph createReducedSemanticGraph() {
-        SemanticGraph result = new SemanticGraph(semanticGraph);
+        return createReducedGraph().toSemanticGraph();
+    }
+
+    /**
+     * Returns an overlay of the semantic graph of this constituent in which all edges (from any
+     * included vertex) to excluded vertexes have been removed.
+     */
+    SemanticGraphOverlay createReducedGraph() {
+        SemanticGraphOverlay result = semanticGraph.copy();
         DpUtils.removeEdges(result, root, excludedVertexes);
         for (IndexedWord v : additionalVertexes) {
             DpUtils.removeEdges(result, v, excludedVertexes);
@@ -0,0 +1,80 @@
+package de.mpii.clausie;
+
+import edu.stanford.nlp.ling.CoreLabel;
+
+import java.util.List;
+
+/**
+ * A sentence to be processed together with an identifier chosen by the caller and, optionally,
+ * its tokens (e.g., split by {@link DocumentReader}) or its parse (e.g., read by
+ * {@link ConllUReader}). Sentences with tokens are not tokenized again, and sentences with a
+ * parse are not parsed again.
+ */
+public final class InputSentence {
+
+    private final String id;
+    private final String text;
+    private final List<CoreLabel> tokens;
+    private final DependencyParse parse;
+
+    /**
+     * Constructs a sentence with a given identifier and text.
+     */
+    public InputSentence(String id, String text) {
+        this(id, text, null, null);
+    }
+
+    /**
+     * Constructs a sentence with a given identifier, text and tokens.
+     */
+    public InputSentence(String id, String text, List<CoreLabel> tokens) {
+        this(id, text, tokens, null);
+    }
+
+    /**
+     * Constructs a sentence with a given identifier, text and parse.
+     */
+    public InputSentence(String id, String text, DependencyParse parse) {
+        this(id, text, parse.getTokens(), parse);
+    }
+
+    private InputSentence(String id, String text, List<CoreLabel> tokens, DependencyParse parse) {
+        this.id = id;
+        this.text = text;
+        this.tokens = tokens;
+        this.parse = parse;
+    }
+
+    /**
+     * Returns the identifier of the sentence.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns the text of the sentence.
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Returns the tokens of the sentence, or {@code null} if it has to be tokenized.
+     */
+    public List<CoreLabel> getTokens() {
+        return tokens;
+    }
+
+    /**
+     * Returns the parse of the sentence, or {@code null} if it has to be parsed.
+     */
+    public DependencyParse getParse() {
+        return parse;
+    }
+
+    @Override
+    public String toString() {
+        return id + '\t' + text;
+    }
+}
@@ -0,0 +1,125 @@
+package de.mpii.clausie;
+
+import java.util.Locale;
+
+/**
+ * Minimal helpers to write JSON.
+ */
+final class Json {
+
+    private Json() {
+        throw new AssertionError("No instances allowed!");
+    }
+
+    /**
+     * Appends a string as quoted and escaped JSON string; {@code null} is written as
+     * {@code null}.
+     */
+    static void appendString(StringBuilder sb, String s) {
+        if (s == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                case '\b':
+                    sb.append("\\b");
+                    break;
+                case '\f':
+                    sb.append("\\f");
+                    break;
+                default:
+                    if (c < 0x20 || c == 0x2028 || c == 0x2029) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * Appends a proposition as JSON object with its clause type, its constituents and the
+     * positions of its optional constituents.
+     */
+    static void appendProposition(StringBuilder sb, Proposition proposition) {
+        sb.append('{');
+        appendPropositionFields(sb, proposition);
+        sb.append('}');
+    }
+
+    /**
+     * Appends the fields written by {@link #appendProposition} without the enclosing braces.
+     */
+    static void appendPropositionFields(StringBuilder sb, Proposition proposition) {
+        sb.append("\"type\":");
+        appendString(sb, proposition.getType());
+        sb.append(",\"constituents\":[");
+        String sep = "";
+        for (String constituent : proposition.constituents) {
+            sb.append(sep);
+            appendString(sb, constituent);
+            sep = ",";
+        }
+        sb.append("],\"optional\":[");
+        sep = "";
+        for (int i = 0; i < proposition.constituents.size(); i++) {
+            if (proposition.optional.contains(i)) {
+                sb.append(sep).append(i);
+                sep = ",";
+            }
+        }
+        sb.append(']');
+    }
+
+    /**
+     * Appends a number; infinite values and NaN are written as {@code null}.
+     */
+    static void appendNumber(StringBuilder sb, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            sb.append("null");
+        } else {
+            sb.append(value);
+        }
+    }
+
+    /**
+     * Appends the result for a sentence as JSON object. The status is {@code "ok"},
+     * {@code "timeout"} or {@code "too_long"}; in the latter cases, the list of propositions is
+     * empty.
+     */
+    static void appendResult(StringBuilder sb, ExtractionResult result) {
+        sb.append("{\"id\":");
+        appendString(sb, result.getId());
+        sb.append(",\"status\":");
+        appendString(sb, result.getStatus().name().toLowerCase(Locale.ROOT));
+        sb.append(",\"sentence\":");
+        appendString(sb, result.getSentence());
+        sb.append(",\"propositions\":[");
+        String sep = "";
+        for (Proposition proposition : result.getPropositions()) {
+            sb.append(sep);
+            appendProposition(sb, proposition);
+            sep = ",";
+        }
+        sb.append("]}");
+    }
+}
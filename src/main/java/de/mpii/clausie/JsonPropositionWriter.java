@@ -0,0 +1,41 @@
+package de.mpii.clausie;
+
+import java.io.Writer;
+
+/**
+ * Writes one JSON object per proposition and line (see {@link PropositionWriter.Format#JSONL}).
+ * The PCFG score, if requested, is written as field {@code score}; a sentence that has not been
+ * parsed is written as {@code {"id":...,"status":"timeout"}} (or {@code "too_long"}).
+ */
+final class JsonPropositionWriter extends PropositionWriter {
+
+    JsonPropositionWriter(Writer out,
+                          boolean writeScore) {
+        super(out, writeScore);
+    }
+
+    @Override
+    protected void appendProposition(String id,
+                                     Proposition proposition,
+                                     double pcfgScore) {
+        record.append("{\"id\":");
+        Json.appendString(record, id);
+        record.append(',');
+        Json.appendPropositionFields(record, proposition);
+        if (writeScore) {
+            record.append(",\"score\":");
+            Json.appendNumber(record, pcfgScore);
+        }
+        record.append("}\n");
+    }
+
+    @Override
+    protected void appendStatus(String id,
+                                String status) {
+        record.append("{\"id\":");
+        Json.appendString(record, id);
+        record.append(",\"status\":");
+        Json.appendString(record, status);
+        record.append("}\n");
+    }
+}
@@ -0,0 +1,191 @@
+package de.mpii.clausie;
+
+import edu.stanford.nlp.ling.CoreLabel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Schedules blocks of sentences on a pool of worker threads, longest sentences first.
+ * <p>
+ * Parsing time grows roughly cubically with the length of a sentence, so that a few long
+ * sentences that are started last determine the time needed for a whole block. This scheduler
+ * tokenizes each block (unless its sentences have already been tokenized), groups its sentences
+ * into bins by number of tokens and submits the bins from the longest to the shortest sentences
+ * (longest processing time first). The futures are returned in input order, so that results can
+ * still be written in input order.
+ * <p>
+ * The scheduler measures the processing time of every sentence. {@link #getReport()} compares the
+ * achieved makespan with the makespan of submitting the same sentences in input order, which is
+ * obtained by replaying the measured times on the same number of workers.
+ */
+public class LengthAwareScheduler {
+
+    private final ClausIEEngine engine;
+    private final ExecutorService executor;
+    private final int threads;
+
+    /**
+     * All submitted blocks.
+     */
+    private final List<Block> blocks = new ArrayList<>();
+    private final AtomicLong firstStart = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong lastEnd = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Constructs a scheduler.
+     *
+     * @param engine   The engine used to process sentences
+     * @param executor The executor that runs the sentences; its queue should be FIFO
+     * @param threads  The number of worker threads of the executor
+     */
+    public LengthAwareScheduler(ClausIEEngine engine,
+                                ExecutorService executor,
+                                int threads) {
+        this.engine = engine;
+        this.executor = executor;
+        this.threads = threads;
+    }
+
+    /**
+     * Submits a block of sentences, longest first, and returns the futures of their results in
+     * input order.
+     */
+    public List<Future<ExtractionResult>> submit(List<InputSentence> block) {
+        int n = block.size();
+        List<List<CoreLabel>> tokens = new ArrayList<>(n);
+        int maxLength = 0;
+        for (InputSentence sentence : block) {
+            List<CoreLabel> sentenceTokens = sentence.getTokens() != null
+                    ? sentence.getTokens()
+                    : engine.tokenize(sentence.getText());
+            tokens.add(sentenceTokens);
+            maxLength = Math.max(maxLength, sentenceTokens.size());
+        }
+
+        // bin the sentences by number of tokens (counting sort, stable within a bin)
+        int[] binStart = new int[maxLength + 2];
+        for (List<CoreLabel> sentenceTokens : tokens) {
+            binStart[sentenceTokens.size() + 1]++;
+        }
+        for (int length = 1; length < binStart.length; length++) {
+            binStart[length] += binStart[length - 1];
+        }
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[binStart[tokens.get(i).size()]++] = i;
+        }
+
+        // submit from the longest to the shortest sentence
+        Block submitted = new Block(n);
+        synchronized (blocks) {
+            blocks.add(submitted);
+        }
+        long[] times = submitted.times;
+        Future<ExtractionResult>[] futures = newFutureArray(n);
+        for (int k = n - 1; k >= 0; k--) {
+            int i = order[k];
+            submitted.order[n - 1 - k] = i;
+            InputSentence sentence = block.get(i);
+            List<CoreLabel> sentenceTokens = tokens.get(i);
+            futures[i] = executor.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    return sentence.getParse() != null
+                            ? engine.extract(sentence)
+                            : engine.extract(sentence.getId(), sentence.getText(), sentenceTokens);
+                } finally {
+                    long end = System.nanoTime();
+                    times[i] = end - start;
+                    firstStart.accumulateAndGet(start, Math::min);
+                    lastEnd.accumulateAndGet(end, Math::max);
+                }
+            });
+        }
+        return Arrays.asList(futures);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Future<ExtractionResult>[] newFutureArray(int n) {
+        return (Future<ExtractionResult>[]) new Future<?>[n];
+    }
+
+    /**
+     * Returns a summary of the achieved makespan and of the makespan of submitting the sentences
+     * in input order. Must be called after all submitted sentences have been completed.
+     */
+    public String getReport() {
+        List<Block> submitted;
+        synchronized (blocks) {
+            submitted = new ArrayList<>(blocks);
+        }
+        int n = 0;
+        for (Block block : submitted) {
+            n += block.times.length;
+        }
+        if (n == 0) {
+            return "No sentences processed";
+        }
+        long[] inputOrder = new long[n];
+        long[] submissionOrder = new long[n];
+        int pos = 0;
+        for (Block block : submitted) {
+            for (int k = 0; k < block.times.length; k++) {
+                inputOrder[pos + k] = block.times[k];
+                submissionOrder[pos + k] = block.times[block.order[k]];
+            }
+            pos += block.times.length;
+        }
+        long lpt = makespan(submissionOrder, threads);
+        long fifo = makespan(inputOrder, threads);
+        long achieved = lastEnd.get() - firstStart.get();
+        return String.format(
+                "%d sentences on %d threads: makespan %.1f ms (longest first, simulated: %.1f ms); "
+                        + "input order, simulated: %.1f ms",
+                n, threads, achieved / 1e6, lpt / 1e6, fifo / 1e6);
+    }
+
+    /**
+     * A submitted block of sentences.
+     */
+    private static final class Block {
+
+        /**
+         * Processing times (in nanoseconds) in input order; written by the worker threads.
+         */
+        final long[] times;
+
+        /**
+         * Input positions in submission order.
+         */
+        final int[] order;
+
+        Block(int n) {
+            times = new long[n];
+            order = new int[n];
+        }
+    }
+
+    /**
+     * Returns the makespan of list scheduling the given processing times in the given order on
+     * {@code workers} workers.
+     */
+    static long makespan(long[] times, int workers) {
+        PriorityQueue<Long> available = new PriorityQueue<>(workers);
+        for (int i = 0; i < workers; i++) {
+            available.add(0L);
+        }
+        long makespan = 0;
+        for (long time : times) {
+            long end = available.remove() + time;
+            available.add(end);
+            makespan = Math.max(makespan, end);
+        }
+        return makespan;
+    }
+}
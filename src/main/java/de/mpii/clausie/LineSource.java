@@ -0,0 +1,409 @@
+package de.mpii.clausie;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads UTF-8 text line by line.
+ * <p>
+ * Plain files are memory-mapped (in windows of {@value #MAP_WINDOW} bytes) and decoded directly
+ * from the mapped pages; gzip-compressed files ({@code .gz}) and other streams are read through
+ * a large buffer. Lines are terminated by {@code \n}, {@code \r} or {@code \r\n}; a leading byte
+ * order mark is skipped and malformed input is replaced by {@code U+FFFD}.
+ * <p>
+ * {@link #next()} advances to the next line, which stays in the internal buffer of the source.
+ * The methods that access the current line work on this buffer, so that parts of a line, e.g.,
+ * an identifier and a sentence separated by a tab, can be extracted without copying the whole
+ * line first. Positions are relative to the start of the current line.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public final class LineSource implements Closeable {
+
+    /**
+     * Size of the byte buffer of streams.
+     */
+    static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Number of bytes of a file that are mapped at a time.
+     */
+    static final int MAP_WINDOW = 1 << 28;
+
+    private final Input input;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    /**
+     * Decoded characters; {@code buf[pos, limit)} have not been returned yet.
+     */
+    private char[] buf = new char[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+
+    /**
+     * Bounds of the current line in {@code buf}.
+     */
+    private int start;
+    private int end;
+    private int lineNumber;
+
+    private boolean endOfInput; // no more bytes
+    private boolean decoded;    // all bytes decoded and flushed
+    private boolean skipLf;     // last line ended with \r
+    private boolean started;
+
+    private LineSource(Input input) {
+        this.input = input;
+    }
+
+    // -- construction
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Opens a file. Files whose name ends with {@code .gz} are decompressed while reading; all
+     * other files are memory-mapped.
+     */
+    public static LineSource open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            if (path.getFileName().toString().endsWith(".gz")) {
+                InputStream in = new GZIPInputStream(Channels.newInputStream(channel), BUFFER_SIZE);
+                return new LineSource(new StreamInput(Channels.newChannel(in)));
+            }
+            return new LineSource(new MappedInput(channel));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads from a stream, e.g., {@code System.in}. The stream is closed when the source is
+     * closed.
+     */
+    public static LineSource of(InputStream in) {
+        return new LineSource(new StreamInput(Channels.newChannel(in)));
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    // -- reading
+    // ---------------------------------------------------------------------------------
+
+    /**
+     * Advances to the next line. Returns {@code false} if there are no more lines.
+     */
+    public boolean next() throws IOException {
+        int scan = pos;
+        while (true) {
+            if (skipLf && pos < limit) {
+                if (buf[pos] == '\n') {
+                    pos++;
+                }
+                skipLf = false;
+                scan = pos;
+            }
+            for (; scan < limit; scan++) {
+                char c = buf[scan];
+                if (c == '\n' || c == '\r') {
+                    start = pos;
+                    end = scan;
+                    pos = scan + 1;
+                    skipLf = c == '\r';
+                    lineNumber++;
+                    return true;
+                }
+            }
+            if (decoded) {
+                if (pos == limit) {
+                    return false;
+                }
+                // last line without terminator
+                start = pos;
+                end = limit;
+                pos = limit;
+                lineNumber++;
+                return true;
+            }
+            // move the partial line to the front of the buffer, or grow it if full
+            if (pos > 0) {
+                System.arraycopy(buf, pos, buf, 0, limit - pos);
+                limit -= pos;
+                scan -= pos;
+                pos = 0;
+            } else if (limit == buf.length) {
+                char[] grown = new char[buf.length * 2];
+                System.arraycopy(buf, 0, grown, 0, limit);
+                buf = grown;
+            }
+            fill();
+        }
+    }
+
+    /**
+     * Decodes more characters into {@code buf[limit, buf.length)}, which must not be empty.
+     */
+    private void fill() throws IOException {
+        int before = limit;
+        while (limit == before && !decoded) {
+            CharBuffer out = CharBuffer.wrap(buf, limit, buf.length - limit);
+            ByteBuffer bytes = input.bytes();
+            CoderResult result = decoder.decode(bytes, out, endOfInput);
+            if (endOfInput && result.isUnderflow()) {
+                result = decoder.flush(out);
+                decoded = result.isUnderflow();
+            }
+            limit = out.position();
+            if (limit == before) {
+                if (result.isOverflow()) {
+                    // no room for a surrogate pair
+                    char[] grown = new char[buf.length * 2];
+                    System.arraycopy(buf, 0, grown, 0, limit);
+                    buf = grown;
+                } else if (!endOfInput) {
+                    endOfInput = !input.refill();
+                }
+            }
+        }
+        if (!started && limit > 0) {
+            started = true;
+            if (buf[0] == '\uFEFF') {
+                pos = 1;
+            }
+        }
+    }
+
+    // -- current line
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Returns the number of the current line, starting from 1.
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Returns the length of the current line (without terminator).
+     */
+    public int length() {
+        return end - start;
+    }
+
+    public char charAt(int index) {
+        return buf[start + index];
+    }
+
+    /**
+     * Returns the position of the first occurrence of a character in the current line, or -1.
+     */
+    public int indexOf(char c) {
+        for (int i = start; i < end; i++) {
+            if (buf[i] == c) {
+                return i - start;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether the current line contains only whitespace.
+     */
+    public boolean isBlank() {
+        return skipWhitespace(start, end) == end;
+    }
+
+    /**
+     * Checks whether the first non-whitespace character of the current line is {@code #}.
+     */
+    public boolean isComment() {
+        int i = skipWhitespace(start, end);
+        return i < end && buf[i] == '#';
+    }
+
+    /**
+     * Returns the current line.
+     */
+    public String line() {
+        return new String(buf, start, end - start);
+    }
+
+    /**
+     * Returns the characters {@code [from, to)} of the current line without leading and trailing
+     * whitespace (as {@link String#trim()}).
+     */
+    public String text(int from,
+                       int to) {
+        int i = skipWhitespace(start + from, start + to);
+        int j = start + to;
+        while (j > i && buf[j - 1] <= ' ') {
+            j--;
+        }
+        return new String(buf, i, j - i);
+    }
+
+    /**
+     * Parses the characters {@code [from, to)} of the current line, surrounded by optional
+     * whitespace, as decimal integer.
+     */
+    public int parseInt(int from,
+                        int to) {
+        if (from < 0 || to < from || to > length()) {
+            throw new NumberFormatException("Line " + lineNumber + ": no number at [" + from + ", " + to + ")");
+        }
+        int i = skipWhitespace(start + from, start + to);
+        int j = start + to;
+        while (j > i && buf[j - 1] <= ' ') {
+            j--;
+        }
+        boolean negative = i < j && buf[i] == '-';
+        if (negative || (i < j && buf[i] == '+')) {
+            i++;
+        }
+        if (i == j) {
+            throw new NumberFormatException("Line " + lineNumber + ": no number at [" + from + ", " + to + ")");
+        }
+        long value = 0;
+        for (; i < j; i++) {
+            int digit = Character.digit(buf[i], 10);
+            if (digit < 0) {
+                throw new NumberFormatException("Line " + lineNumber + ": invalid number '" + text(from, to) + "'");
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw new NumberFormatException("Line " + lineNumber + ": number too large '" + text(from, to) + "'");
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Line " + lineNumber + ": number too large '" + text(from, to) + "'");
+        }
+        return (int) value;
+    }
+
+    private int skipWhitespace(int from,
+                               int to) {
+        while (from < to && buf[from] <= ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    // -- inputs
+    // ----------------------------------------------------------------------------------
+
+    /**
+     * A source of bytes.
+     */
+    private interface Input extends Closeable {
+
+        /**
+         * Returns the buffer that holds the bytes to decode next.
+         */
+        ByteBuffer bytes();
+
+        /**
+         * Makes more bytes available in {@link #bytes()}, keeping the remaining ones. Returns
+         * {@code false} if there are no more bytes.
+         */
+        boolean refill() throws IOException;
+    }
+
+    /**
+     * Maps a file window by window.
+     */
+    private static final class MappedInput implements Input {
+
+        private final FileChannel channel;
+        private final long size;
+        private long offset; // of the current window
+        private MappedByteBuffer window;
+
+        MappedInput(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            this.window = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, MAP_WINDOW));
+        }
+
+        @Override
+        public ByteBuffer bytes() {
+            return window;
+        }
+
+        @Override
+        public boolean refill() throws IOException {
+            long next = offset + window.position();
+            long remaining = offset + window.limit() - next;
+            if (offset + window.limit() >= size) {
+                return false;
+            }
+            // the new window starts with the bytes that could not be decoded yet
+            offset = next;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                    Math.min(size - offset, Math.max(MAP_WINDOW, remaining + 1)));
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Reads a channel through a buffer.
+     */
+    private static final class StreamInput implements Input {
+
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        StreamInput(ReadableByteChannel channel) {
+            this.channel = channel;
+            buffer.flip();
+        }
+
+        @Override
+        public ByteBuffer bytes() {
+            return buffer;
+        }
+
+        @Override
+        public boolean refill() throws IOException {
+            buffer.compact();
+            try {
+                int n = 0;
+                while (n == 0) {
+                    n = channel.read(buffer);
+                }
+                return n > 0;
+            } finally {
+                buffer.flip();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package de.mpii.clausie;
+
+import edu.stanford.nlp.parser.lexparser.LexicalizedParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Process-wide registry of parser models and {@link Options}.
+ * <p>
+ * Each parser model and each options file is loaded at most once and shared by all callers that
+ * acquire it. The registry counts the references to each entry; an entry is dropped when its last
+ * reference is released, so that the model can be garbage collected. Every {@code acquire} call
+ * must therefore be matched by a {@code release} call with the same name.
+ * <p>
+ * Shared {@link Options} must not be modified.
+ */
+public final class ModelRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelRegistry.class);
+
+    /**
+     * Name under which the default options (see {@link Options#Options()}) are registered.
+     */
+    public static final String DEFAULT_OPTIONS = "/clausie/clausie.conf";
+
+    private static final Map<String, Entry<LexicalizedParser>> PARSERS = new HashMap<>();
+    private static final Map<String, Entry<Options>> OPTIONS = new HashMap<>();
+
+    private ModelRegistry() {
+        throw new AssertionError("No instances allowed!");
+    }
+
+    // -- parser models
+    // ---------------------------------------------------------------------------
+
+    /**
+     * Returns the parser model stored at a given path or resource, loading it if needed.
+     */
+    public static LexicalizedParser acquireParser(String model) {
+        try {
+            return acquire(PARSERS, model, () -> LexicalizedParser.loadModel(model));
+        } catch (IOException e) {
+            // loadModel does not throw checked exceptions
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Releases a parser model acquired with {@link #acquireParser(String)}.
+     */
+    public static void releaseParser(String model) {
+        release(PARSERS, model);
+    }
+
+    // -- options
+    // ---------------------------------------------------------------------------------
+
+    /**
+     * Returns the options stored in a given file or resource, loading them if needed. Use
+     * {@link #DEFAULT_OPTIONS} for the default options.
+     */
+    public static Options acquireOptions(String fileOrResourceName) throws IOException {
+        return acquire(OPTIONS, fileOrResourceName, () -> DEFAULT_OPTIONS.equals(fileOrResourceName)
+                ? new Options()
+                : new Options(fileOrResourceName));
+    }
+
+    /**
+     * Releases options acquired with {@link #acquireOptions(String)}.
+     */
+    public static void releaseOptions(String fileOrResourceName) {
+        release(OPTIONS, fileOrResourceName);
+    }
+
+    // -- implementation
+    // --------------------------------------------------------------------------
+
+    private static <T> T acquire(Map<String, Entry<T>> entries,
+                                 String name,
+                                 Loader<T> loader) throws IOException {
+        Entry<T> entry;
+        synchronized (entries) {
+            entry = entries.computeIfAbsent(name, key -> new Entry<>());
+            entry.references++;
+        }
+        // load outside of the lock on the map, so that different entries load concurrently
+        try {
+            return entry.get(name, loader);
+        } catch (IOException | RuntimeException | Error e) {
+            release(entries, name);
+            throw e;
+        }
+    }
+
+    private static <T> void release(Map<String, Entry<T>> entries,
+                                    String name) {
+        synchronized (entries) {
+            Entry<T> entry = entries.get(name);
+            if (entry == null) {
+                throw new IllegalStateException("'" + name + "' has not been acquired");
+            }
+            entry.references--;
+            if (entry.references == 0) {
+                entries.remove(name);
+                logger.debug("Released '{}'", name);
+            }
+        }
+    }
+
+    /**
+     * Loads a value.
+     */
+    private interface Loader<T> {
+        T load() throws IOException;
+    }
+
+    /**
+     * A registered value and the number of its references.
+     */
+    private static final class Entry<T> {
+        int references; // guarded by the map that holds the entry
+        private T value;
+
+        synchronized T get(String name, Loader<T> loader) throws IOException {
+            if (value == null) {
+                value = loader.load();
+                logger.debug("Loaded '{}'", name);
+            }
+            return value;
+        }
+    }
+}
@@ -12,6 +12,7 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * Options handles the ClausIe settings which should be loaded out of a configuration file.
@@ -192,6 +193,29 @@ public class Options {
         return dictComplexTransitive.contains(word);
     }
 
+    /**
+     * Returns a 64-bit hash of all settings, including the words of the dictionaries. Options
+     * with the same fingerprint produce the same propositions.
+     */
+    public long fingerprint() {
+        StringBuilder sb = new StringBuilder();
+        for (Dictionary dict : Arrays.asList(dictCopular, dictExtCopular, dictNotExtCopular,
+                dictComplexTransitive, dictAdverbsConj, dictAdverbsIgnore, dictAdverbsInclude)) {
+            for (String word : new TreeSet<>(dict.words)) {
+                sb.append(word).append('\n');
+            }
+            sb.append('\0');
+        }
+        sb.append(conservativeSVA).append(' ').append(conservativeSVOA)
+                .append(' ').append(processCcAllVerbs).append(' ').append(processCcNonVerbs)
+                .append(' ').append(processAppositions).append(' ').append(processPossessives)
+                .append(' ').append(processPartmods)
+                .append(' ').append(nary).append(' ').append(minOptionalArgs).append(' ').append(maxOptionalArgs)
+                .append(' ').append(lemmatize)
+                .append(' ').append(appositionVerb).append('\0').append(possessiveVerb);
+        return ParseCache.hash(sb.toString());
+    }
+
     /**
      * Returns a string with some initial words of a given dictionary.
      */
@@ -0,0 +1,629 @@
+package de.mpii.clausie;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.semgraph.SemanticGraphEdge;
+import edu.stanford.nlp.trees.LabeledScoredTreeNode;
+import edu.stanford.nlp.trees.Tree;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link DependencyProvider} that stores the parses of another provider in a file and reuses
+ * them in later runs.
+ * <p>
+ * Parsing dominates the running time of ClausIE, but it does not depend on the {@link Options}.
+ * When the same corpus is processed repeatedly with different options, the cache answers every
+ * sentence that has been parsed before without calling the parser. A sentence is identified by
+ * its normalized tokens (NFC, separated by a space, with their tags if the tokens are tagged
+ * already) and looked up by a 64-bit hash of this text.
+ * <p>
+ * The file is append-only: each parse is written as a record at the end of the file, and the
+ * file is memory-mapped for reading. On opening, the records are scanned to build the in-memory
+ * index; an incomplete last record (e.g., after a crash) is truncated. A record holds the
+ * indexes, tags and lemmas of the tokens, the constituent tree (if any), the dependency graph and
+ * the score. The tokens themselves are those of the sentence being parsed, so that their offsets
+ * refer to the current input.
+ * <p>
+ * The cache is used within the parse timeout of {@link ClausIEEngine}, whose deadline interrupts
+ * the parsing thread. Since an interrupt closes a {@link FileChannel}, the file is accessed with
+ * the interrupt status cleared (and restored afterwards); if the channel is closed nevertheless
+ * (by an interrupt that arrives during an access), it is reopened. If the file cannot be accessed
+ * any more, the cache is turned off with a warning and sentences are parsed by the underlying
+ * provider.
+ * <p>
+ * The cache does not know the model of the underlying parser; use a separate file for each
+ * model. Instances are thread-safe.
+ */
+public final class ParseCache implements DependencyProvider, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParseCache.class);
+
+    /**
+     * Magic bytes at the start of every cache file (includes the version of the format).
+     */
+    private static final byte[] MAGIC = "CLAUSIE-PARSES-1\n".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Length of the header of a record: payload length (int) and key hash (long).
+     */
+    private static final int RECORD_HEADER = 12;
+
+    private final DependencyProvider provider;
+    private final Path path;
+    private volatile FileChannel channel;
+
+    /**
+     * Set when the file cannot be accessed any more; the cache is not used afterwards.
+     */
+    private volatile boolean disabled;
+
+    private boolean closed; // guarded by this
+
+    /**
+     * Offsets of the records by key hash; only the first record of a hash is indexed.
+     */
+    private final Map<Long, Long> index = new ConcurrentHashMap<>();
+
+    /**
+     * Mapping of the beginning of the file; replaced when records beyond it are read.
+     */
+    private volatile MappedByteBuffer mapped;
+
+    private long size; // guarded by this
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private ParseCache(DependencyProvider provider,
+                       Path path,
+                       FileChannel channel) {
+        this.provider = provider;
+        this.path = path;
+        this.channel = channel;
+    }
+
+    // -- construction
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Opens a cache file, creating it if it does not exist, for the parses of a given provider.
+     *
+     * @throws IOException if the file is not a cache or has been written for another provider
+     */
+    public static ParseCache open(Path path,
+                                  DependencyProvider provider) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            ParseCache cache = new ParseCache(provider, path, channel);
+            cache.load();
+            return cache;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private synchronized void load() throws IOException {
+        long start = System.nanoTime();
+        size = channel.size();
+        if (size == 0) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.write(MAGIC);
+            writeString(out, provider.getName());
+            append(ByteBuffer.wrap(bytes.toByteArray()));
+        }
+        remap();
+
+        // header
+        ByteBuffer header = read(0, (int) Math.min(size, MAGIC.length + 4 + 1024));
+        byte[] magic = new byte[MAGIC.length];
+        if (header.remaining() < MAGIC.length + 4) {
+            throw new IOException("Not a parse cache: " + path);
+        }
+        header.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a parse cache: " + path);
+        }
+        String name = readString(header);
+        if (!provider.getName().equals(name)) {
+            throw new IOException("Parse cache " + path + " holds parses of provider '" + name
+                    + "', not of '" + provider.getName() + "'");
+        }
+
+        // records
+        long offset = header.position();
+        while (offset + RECORD_HEADER <= size) {
+            ByteBuffer record = read(offset, RECORD_HEADER);
+            int length = record.getInt();
+            if (length < 0 || offset + RECORD_HEADER + length > size) {
+                break;
+            }
+            index.putIfAbsent(record.getLong(), offset);
+            offset += RECORD_HEADER + length;
+        }
+        if (offset < size) {
+            logger.warn("Truncating incomplete record at offset {} of parse cache {}", offset, path);
+            channel.truncate(offset);
+            size = offset;
+        }
+        logger.info("Opened parse cache {} with {} parses in {} ms", path, index.size(),
+                (System.nanoTime() - start) / 1000000);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        channel.close();
+    }
+
+    // -- DependencyProvider
+    // ----------------------------------------------------------------------
+
+    /**
+     * Returns the name of the underlying provider marked as cached, since most sentences may not
+     * have been parsed by it.
+     */
+    @Override
+    public String getName() {
+        return "cache(" + provider.getName() + ")";
+    }
+
+    @Override
+    public List<CoreLabel> tokenize(String sentence) {
+        return provider.tokenize(sentence);
+    }
+
+    /**
+     * Returns the cached parse of the tokens, or parses them with the underlying provider and
+     * adds the parse to the cache.
+     */
+    @Override
+    public DependencyParse parse(List<CoreLabel> tokens) {
+        if (disabled) {
+            return provider.parse(tokens);
+        }
+        String key = key(tokens);
+        long hash = hash(key);
+        Long offset = index.get(hash);
+        if (offset != null) {
+            try {
+                DependencyParse parse = get(offset, key, tokens);
+                if (parse != null) {
+                    hits.increment();
+                    return parse;
+                }
+            } catch (IOException e) {
+                disable(e);
+            }
+        }
+        misses.increment();
+        DependencyParse parse = provider.parse(tokens);
+        if (offset == null && !disabled) {
+            try {
+                put(hash, key, parse);
+            } catch (IOException e) {
+                disable(e);
+            }
+        }
+        return parse;
+    }
+
+    /**
+     * Turns the cache off after the file could not be accessed.
+     */
+    private synchronized void disable(IOException e) {
+        if (!disabled) {
+            disabled = true;
+            logger.warn("Unable to access parse cache {}; parsing without cache from now on", path, e);
+        }
+    }
+
+    /**
+     * Returns whether the cache has been turned off because the file could not be accessed.
+     */
+    public boolean isDisabled() {
+        return disabled;
+    }
+
+    @Override
+    public void reset() {
+        provider.reset();
+    }
+
+    @Override
+    public void setStageTimes(StageTimes stageTimes) {
+        provider.setStageTimes(stageTimes);
+    }
+
+    /**
+     * Resets the numbers of hits and misses and the statistics of the underlying provider; the
+     * cached parses are kept.
+     */
+    @Override
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+        provider.resetStatistics();
+    }
+
+    @Override
+    public int getMaxLength() {
+        return provider.getMaxLength();
+    }
+
+    /**
+     * Returns the number of cached parses.
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Returns a summary of the hits and misses so far.
+     */
+    public String getReport() {
+        long h = hits.sum();
+        long m = misses.sum();
+        return String.format("parse cache %s: %d hits, %d misses (%.1f%% hits), %d parses%s",
+                path, h, m, h + m > 0 ? 100.0 * h / (h + m) : 0.0, index.size(),
+                disabled ? " (turned off after an error)" : "");
+    }
+
+    // -- keys
+    // ------------------------------------------------------------------------------------
+
+    /**
+     * Returns the normalized text that identifies the parse of the given tokens.
+     */
+    static String key(List<CoreLabel> tokens) {
+        StringBuilder sb = new StringBuilder();
+        for (CoreLabel token : tokens) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(token.word());
+            if (token.tag() != null) {
+                sb.append('/').append(token.tag());
+            }
+        }
+        return Normalizer.normalize(sb, Normalizer.Form.NFC);
+    }
+
+    /**
+     * Returns the 64-bit FNV-1a hash of a key.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            hash = (hash ^ (c & 0xff)) * 0x100000001b3L;
+            hash = (hash ^ (c >>> 8)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // -- records
+    // ---------------------------------------------------------------------------------
+
+    /**
+     * Reads the parse at a given offset. Returns {@code null} if the record belongs to a
+     * different sentence with the same hash, or if it does not fit the tokens.
+     */
+    private DependencyParse get(long offset,
+                                String key,
+                                List<CoreLabel> tokens) throws IOException {
+        int length = read(offset, RECORD_HEADER).getInt();
+        ByteBuffer in = read(offset + RECORD_HEADER, length);
+        if (!key.equals(readString(in))) {
+            return null;
+        }
+        double score = in.getDouble();
+        int n = in.getInt();
+        if (n != tokens.size()) {
+            return null;
+        }
+        for (CoreLabel token : tokens) {
+            int tokenIndex = in.getInt();
+            if (tokenIndex >= 0) {
+                token.setIndex(tokenIndex);
+            }
+            String tag = readString(in);
+            if (tag != null) {
+                token.setTag(tag);
+            }
+            String lemma = readString(in);
+            if (lemma != null) {
+                token.setLemma(lemma);
+            }
+        }
+        Tree tree = in.get() != 0 ? readTree(in, tokens, new int[1]) : null;
+
+        SemanticGraph semanticGraph = new SemanticGraph();
+        IndexedWord[] words = new IndexedWord[n + 1];
+        for (int i = in.getInt(); i > 0; i--) {
+            int vertex = in.getInt();
+            words[vertex] = new IndexedWord(tokens.get(vertex - 1));
+            semanticGraph.addVertex(words[vertex]);
+        }
+        for (int i = in.getInt(); i > 0; i--) {
+            semanticGraph.addRoot(words[in.getInt()]);
+        }
+        for (int i = in.getInt(); i > 0; i--) {
+            IndexedWord governor = words[in.getInt()];
+            IndexedWord dependent = words[in.getInt()];
+            String relation = readString(in);
+            double weight = in.getDouble();
+            boolean extra = in.get() != 0;
+            semanticGraph.addEdge(governor, dependent, ConllUReader.relation(relation), weight, extra);
+        }
+        return new DependencyParse(tokens, semanticGraph, tree, score);
+    }
+
+    /**
+     * Reads a subtree in preorder; its leaves are labeled with the tokens.
+     */
+    private static Tree readTree(ByteBuffer in,
+                                 List<CoreLabel> tokens,
+                                 int[] leaf) {
+        int children = in.getInt();
+        if (children == 0) {
+            return new LabeledScoredTreeNode(tokens.get(leaf[0]++));
+        }
+        CoreLabel label = new CoreLabel();
+        label.setValue(readString(in));
+        label.setCategory(readString(in));
+        label.setWord(readString(in));
+        label.setTag(readString(in));
+        int begin = in.getInt();
+        int end = in.getInt();
+        if (begin >= 0) {
+            label.setBeginPosition(begin);
+            label.setEndPosition(end);
+        }
+        double score = in.getDouble();
+        List<Tree> kids = new ArrayList<>(children);
+        for (int i = 0; i < children; i++) {
+            kids.add(readTree(in, tokens, leaf));
+        }
+        Tree tree = new LabeledScoredTreeNode(label, kids);
+        tree.setScore(score);
+        return tree;
+    }
+
+    /**
+     * Appends a parse to the file. Parses that cannot be restored from a record (copy nodes,
+     * or leaves that are not the tokens) are not cached.
+     */
+    private void put(long hash,
+                     String key,
+                     DependencyParse parse) throws IOException {
+        List<CoreLabel> tokens = parse.getTokens();
+        Tree tree = parse.getTree();
+        SemanticGraph semanticGraph = parse.getSemanticGraph();
+        if (tree != null && tree.getLeaves().size() != tokens.size()) {
+            return;
+        }
+        for (IndexedWord vertex : semanticGraph.vertexSet()) {
+            if (vertex.copyCount() != 0 || vertex.index() < 1 || vertex.index() > tokens.size()) {
+                return;
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0); // length, set below
+        out.writeLong(hash);
+        writeString(out, key);
+        out.writeDouble(parse.getScore());
+        out.writeInt(tokens.size());
+        for (CoreLabel token : tokens) {
+            out.writeInt(token.index());
+            writeString(out, token.tag());
+            writeString(out, token.lemma());
+        }
+        out.writeBoolean(tree != null);
+        if (tree != null) {
+            writeTree(out, tree);
+        }
+        out.writeInt(semanticGraph.size());
+        for (IndexedWord vertex : semanticGraph.vertexSet()) {
+            out.writeInt(vertex.index());
+        }
+        out.writeInt(semanticGraph.getRoots().size());
+        for (IndexedWord root : semanticGraph.getRoots()) {
+            out.writeInt(root.index());
+        }
+        List<SemanticGraphEdge> edges = semanticGraph.edgeListSorted();
+        out.writeInt(edges.size());
+        for (SemanticGraphEdge edge : edges) {
+            out.writeInt(edge.getGovernor().index());
+            out.writeInt(edge.getDependent().index());
+            writeString(out, edge.getRelation().toString());
+            out.writeDouble(edge.getWeight());
+            out.writeBoolean(edge.isExtra());
+        }
+        ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        record.putInt(0, record.capacity() - RECORD_HEADER);
+
+        synchronized (this) {
+            if (index.containsKey(hash)) {
+                return; // parsed concurrently by another thread
+            }
+            long offset = append(record);
+            index.put(hash, offset);
+        }
+    }
+
+    private static void writeTree(DataOutputStream out,
+                                  Tree tree) throws IOException {
+        Tree[] children = tree.children();
+        out.writeInt(children.length);
+        if (children.length == 0) {
+            return;
+        }
+        CoreLabel label = (CoreLabel) tree.label();
+        writeString(out, label.value());
+        writeString(out, label.category());
+        writeString(out, label.word());
+        writeString(out, label.tag());
+        Integer begin = label.get(CoreAnnotations.CharacterOffsetBeginAnnotation.class);
+        Integer end = label.get(CoreAnnotations.CharacterOffsetEndAnnotation.class);
+        out.writeInt(begin != null && end != null ? begin : -1);
+        out.writeInt(begin != null && end != null ? end : -1);
+        out.writeDouble(tree.score());
+        for (Tree child : children) {
+            writeTree(out, child);
+        }
+    }
+
+    private static void writeString(DataOutputStream out,
+                                    String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // -- file access
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Appends bytes to the file and returns their offset.
+     */
+    private synchronized long append(ByteBuffer bytes) throws IOException {
+        long offset = size;
+        access(channel -> {
+            bytes.position(0);
+            long position = offset;
+            while (bytes.hasRemaining()) {
+                position += channel.write(bytes, position);
+            }
+            size = position;
+            return null;
+        });
+        return offset;
+    }
+
+    /**
+     * Returns the bytes {@code [offset, offset + length)} of the file. They are read from the
+     * mapping, which is extended if needed; files beyond 2 GB are read with positional reads.
+     */
+    private ByteBuffer read(long offset,
+                            int length) throws IOException {
+        MappedByteBuffer buffer = mapped;
+        if (offset + length > buffer.capacity()) {
+            buffer = remap();
+        }
+        if (offset + length <= buffer.capacity()) {
+            ByteBuffer slice = buffer.duplicate();
+            slice.position((int) offset).limit((int) offset + length);
+            return slice.slice();
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        return access(channel -> {
+            bytes.clear();
+            while (bytes.hasRemaining()) {
+                if (channel.read(bytes, offset + bytes.position()) < 0) {
+                    throw new IOException("Unexpected end of parse cache " + path);
+                }
+            }
+            bytes.flip();
+            return bytes;
+        });
+    }
+
+    private synchronized MappedByteBuffer remap() throws IOException {
+        long length = Math.min(size, Integer.MAX_VALUE);
+        if (mapped == null || mapped.capacity() < length) {
+            mapped = access(channel -> channel.map(FileChannel.MapMode.READ_ONLY, 0, length));
+        }
+        return mapped;
+    }
+
+    /**
+     * An access to the file through its channel; it may be repeated on a reopened channel.
+     */
+    private interface Access<T> {
+        T run(FileChannel channel) throws IOException;
+    }
+
+    /**
+     * Accesses the file with the interrupt status of the calling thread cleared, and restores it
+     * afterwards. If the channel has been closed by an interrupt, it is reopened and the access
+     * is repeated once.
+     */
+    private <T> T access(Access<T> access) throws IOException {
+        boolean interrupted = Thread.interrupted();
+        FileChannel current = channel;
+        try {
+            try {
+                return access.run(current);
+            } catch (ClosedChannelException e) {
+                // closed by an interrupt of this thread (ClosedByInterruptException) or of another
+                // thread that accessed the file at the same time (AsynchronousCloseException)
+                interrupted |= Thread.interrupted();
+                return access.run(reopen(current));
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Reopens the channel after it has been closed, unless another thread has done so already.
+     * Bytes written partially beyond the end of the last record are truncated.
+     */
+    private synchronized FileChannel reopen(FileChannel failed) throws IOException {
+        if (channel == failed) {
+            if (closed) {
+                throw new ClosedChannelException();
+            }
+            FileChannel reopened = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (reopened.size() > size) {
+                reopened.truncate(size);
+            }
+            channel = reopened;
+            logger.info("Reopened parse cache {} after it was closed by an interrupt", path);
+        }
+        return channel;
+    }
+}
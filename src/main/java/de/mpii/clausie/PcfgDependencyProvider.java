@@ -0,0 +1,305 @@
+package de.mpii.clausie;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.parser.common.ParserQuery;
+import edu.stanford.nlp.parser.lexparser.LexicalizedParser;
+import edu.stanford.nlp.process.CoreLabelTokenFactory;
+import edu.stanford.nlp.process.PTBTokenizer;
+import edu.stanford.nlp.process.TokenizerFactory;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.semgraph.SemanticGraphFactory;
+import edu.stanford.nlp.trees.Tree;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Parses with the Stanford PCFG parser ({@link LexicalizedParser}) and converts the best parse
+ * into uncollapsed dependencies. This is the default {@link DependencyProvider}.
+ * <p>
+ * Each thread parses with its own {@link ParserQuery}, which is created on first use and kept
+ * for subsequent sentences of that thread. A query allocates charts for the longest sentence it
+ * has parsed and never shrinks them; the charts grow quadratically with the sentence length
+ * (about 100 MB for 60 tokens with the default model). To bound the memory held by each thread,
+ * set a budget with {@link #setMemoryBudget(long)}:
+ * <ul>
+ * <li>sentences whose charts would exceed the budget are not parsed (see {@link #getMaxLength()}),
+ * and</li>
+ * <li>a query whose charts exceed a quarter of the budget is discarded after its sentence, so
+ * that the memory for an outlier is released again and the memory held by each thread between
+ * sentences stays within a quarter of the budget.</li>
+ * </ul>
+ * The memory held by the queries of all threads is reported by {@link #getMemoryReport()}.
+ */
+public class PcfgDependencyProvider implements DependencyProvider {
+
+    /**
+     * Size of the header of an array in bytes.
+     */
+    private static final int ARRAY_HEADER = 16;
+
+    private final LexicalizedParser lp;
+    private final TokenizerFactory<CoreLabel> tokenizerFactory;
+    private final ThreadLocal<Worker> worker;
+
+    /**
+     * The workers of all live threads, for reporting.
+     */
+    private final Set<Worker> workers = Collections.synchronizedSet(
+            Collections.newSetFromMap(new WeakHashMap<Worker, Boolean>()));
+
+    /**
+     * Memory budget per thread in bytes (0 if unbounded), the longest sentence that fits into the
+     * budget and the longest sentence whose charts are kept after parsing.
+     */
+    private volatile long memoryBudget;
+    private volatile int maxLength = Integer.MAX_VALUE;
+    private volatile int retainedLength = Integer.MAX_VALUE;
+
+    private final LongAdder recycledQueries = new LongAdder();
+
+    /**
+     * Statistics of the time spent parsing and converting, or {@code null}.
+     */
+    private volatile StageTimes stageTimes;
+
+    public PcfgDependencyProvider(LexicalizedParser lp) {
+        this.lp = lp;
+        this.tokenizerFactory = PTBTokenizer.factory(new CoreLabelTokenFactory(), "");
+        this.worker = new ThreadLocal<Worker>() {
+            @Override
+            protected Worker initialValue() {
+                Worker worker = new Worker(Thread.currentThread().getName());
+                workers.add(worker);
+                return worker;
+            }
+        };
+    }
+
+    /**
+     * Constructs a provider with the default parser model.
+     */
+    public PcfgDependencyProvider() {
+        this(LexicalizedParser.loadModel(ClausIE.DEFAULT_MODEL));
+    }
+
+    public LexicalizedParser getParser() {
+        return lp;
+    }
+
+    @Override
+    public String getName() {
+        return "pcfg";
+    }
+
+    @Override
+    public List<CoreLabel> tokenize(String sentence) {
+        return tokenizerFactory.getTokenizer(new StringReader(sentence)).tokenize();
+    }
+
+    @Override
+    public DependencyParse parse(List<CoreLabel> tokens) {
+        if (tokens.size() > maxLength) {
+            throw new IllegalArgumentException("Sentence of " + tokens.size()
+                    + " tokens exceeds the memory budget (at most " + maxLength + " tokens)");
+        }
+        Worker worker = this.worker.get();
+        if (worker.query == null) {
+            worker.query = lp.parserQuery();
+        }
+        try {
+            return parse(worker.query, tokens, stageTimes);
+        } finally {
+            if (tokens.size() > worker.chartLength) {
+                worker.chartLength = tokens.size();
+            }
+            if (worker.chartLength > retainedLength) {
+                worker.discard();
+                recycledQueries.increment();
+            }
+        }
+    }
+
+    /**
+     * Discards the parser query of the calling thread.
+     */
+    @Override
+    public void reset() {
+        worker.get().discard();
+    }
+
+    @Override
+    public void setStageTimes(StageTimes stageTimes) {
+        this.stageTimes = stageTimes;
+    }
+
+    /**
+     * Returns the length of the longest sentence that fits into the memory budget, or
+     * {@link Integer#MAX_VALUE} if there is no budget.
+     */
+    @Override
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    // -- memory
+    // ----------------------------------------------------------------------------------
+
+    /**
+     * Returns the memory budget per thread in bytes, or 0 if unbounded.
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Sets the memory budget for the charts of the parser query of each thread, in bytes; 0
+     * removes the budget (default). Should be set before the provider is used.
+     */
+    public void setMemoryBudget(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("Negative memory budget: " + bytes);
+        }
+        if (bytes > 0 && getChartBytes(1) > bytes) {
+            throw new IllegalArgumentException("Memory budget of " + bytes
+                    + " bytes is too small for a sentence of a single token (" + getChartBytes(1) + " bytes)");
+        }
+        memoryBudget = bytes;
+        maxLength = bytes > 0 ? maxLength(bytes) : Integer.MAX_VALUE;
+        retainedLength = bytes > 0 ? maxLength(bytes / 4) : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns the longest sentence whose charts fit into a given number of bytes.
+     */
+    private int maxLength(long bytes) {
+        int length = 0;
+        while (getChartBytes(length + 1) <= bytes) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Returns an estimate of the memory in bytes that a parser query allocates for its charts to
+     * parse a sentence of the given number of tokens. The estimate follows the arrays allocated
+     * by the exhaustive PCFG parser of CoreNLP: inside scores (and outside scores for factored
+     * parsing) for each span and state, the extents of each state and the allowed tags.
+     */
+    public long getChartBytes(int tokens) {
+        if (tokens == 0) {
+            return 0;
+        }
+        edu.stanford.nlp.parser.lexparser.Options op = lp.getOp();
+        long states = lp.stateIndex.size();
+        long length = tokens + 2; // boundary symbol and one extra position
+        long spans = length * (length + 1) / 2;
+        boolean outside = op.doDep && !op.testOptions.useFastFactored;
+        long stateFloats = ARRAY_HEADER + 4 * states;
+        long bytes = spans * stateFloats * (outside ? 2 : 1);
+        if (op.testOptions.lengthNormalization) {
+            bytes += spans * stateFloats;
+        }
+        bytes += (4 * length + 2) * stateFloats; // extents
+        if (outside) {
+            bytes += (4 * length + 2) * (ARRAY_HEADER + states);
+        }
+        bytes += length * (ARRAY_HEADER + lp.tagIndex.size());
+        return bytes;
+    }
+
+    /**
+     * Returns the estimated memory held by the charts of the parser queries of all threads.
+     */
+    public long getChartBytes() {
+        long bytes = 0;
+        for (Worker worker : workers()) {
+            bytes += getChartBytes(worker.chartLength);
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns a summary of the memory held by the charts of each thread and of the budget.
+     */
+    public String getMemoryReport() {
+        List<Worker> workers = workers();
+        workers.sort((w1, w2) -> w1.thread.compareTo(w2.thread));
+        StringBuilder sb = new StringBuilder();
+        long total = 0;
+        for (Worker worker : workers) {
+            long bytes = getChartBytes(worker.chartLength);
+            total += bytes;
+            sb.append(sb.length() == 0 ? " (" : ", ").append(worker.thread)
+                    .append(String.format(": %.1f MB", bytes / 1e6));
+        }
+        if (sb.length() > 0) {
+            sb.append(')');
+        }
+        String budget = memoryBudget > 0
+                ? String.format("budget %.1f MB per thread (up to %d tokens), %d queries recycled",
+                memoryBudget / 1e6, maxLength, recycledQueries.sum())
+                : "no budget";
+        return String.format("pcfg charts: %.1f MB held by %d threads%s; %s",
+                total / 1e6, workers.size(), sb, budget);
+    }
+
+    private List<Worker> workers() {
+        synchronized (workers) {
+            return new ArrayList<>(workers);
+        }
+    }
+
+    /**
+     * Parses a tokenized sentence with a given parser query.
+     */
+    static DependencyParse parse(ParserQuery lpq,
+                                 List<CoreLabel> tokens) {
+        return parse(lpq, tokens, null);
+    }
+
+    /**
+     * Parses a tokenized sentence with a given parser query and adds the time spent parsing and
+     * converting to the given statistics (if not {@code null}).
+     */
+    static DependencyParse parse(ParserQuery lpq,
+                                 List<CoreLabel> tokens,
+                                 StageTimes stageTimes) {
+        long start = System.nanoTime();
+        lpq.parse(tokens); // what about the confidence?
+        Tree tree = lpq.getBestParse();
+        long parsed = System.nanoTime();
+        // use uncollapsed dependencies to facilitate tree creation
+        SemanticGraph semanticGraph = SemanticGraphFactory.generateUncollapsedDependencies(tree);
+        if (stageTimes != null) {
+            stageTimes.add(StageTimes.Stage.PARSING, parsed - start);
+            stageTimes.add(StageTimes.Stage.CONVERSION, System.nanoTime() - parsed);
+        }
+        return new DependencyParse(tokens, semanticGraph, tree, lpq.getPCFGScore());
+    }
+
+    /**
+     * The parser query of a thread and the length of the longest sentence it has parsed, which
+     * determines the size of its charts.
+     */
+    private static final class Worker {
+
+        final String thread;
+        ParserQuery query;
+        volatile int chartLength;
+
+        Worker(String thread) {
+            this.thread = thread;
+        }
+
+        void discard() {
+            query = null;
+            chartLength = 0;
+        }
+    }
+}
@@ -2,15 +2,18 @@ package de.mpii.clausie;
 
 import de.mpii.clausie.Constituent.Type;
 import edu.stanford.nlp.ling.IndexedWord;
-import edu.stanford.nlp.semgraph.SemanticGraph;
 import edu.stanford.nlp.semgraph.SemanticGraphEdge;
 import edu.stanford.nlp.trees.EnglishGrammaticalRelations;
 import edu.stanford.nlp.trees.GrammaticalRelation;
 import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.trees.UniversalEnglishGrammaticalRelations;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * This is a provisory implementation of the processing of coordinating conjunctions.
@@ -19,9 +22,32 @@ import java.util.List;
  * the source of a significant loss in precision by ClausIE.
  * <p>
  * Code is not clean or optimally efficient. More work needs to be done in how to handle CCs.
+ * <p>
+ * Some decisions are based on the constituent tree of the sentence. If no tree is available
+ * (e.g., for sentences parsed by a dependency parser), they are approximated from the positions
+ * of the words in the sentence (see {@link #isDescendant(int, int, int)} and
+ * {@link #nextToVerb(SemanticGraphOverlay, IndexedWord, int, int)}).
  */
 public final class ProcessConjunctions {
 
+    /**
+     * Relations that attach a word within the phrase of its governor; used when there is no
+     * constituent tree.
+     */
+    private static final Set<GrammaticalRelation> PHRASE_RELATIONS = new HashSet<>(Arrays.asList(
+            UniversalEnglishGrammaticalRelations.AUX_MODIFIER,
+            UniversalEnglishGrammaticalRelations.AUX_PASSIVE_MODIFIER,
+            UniversalEnglishGrammaticalRelations.COPULA,
+            UniversalEnglishGrammaticalRelations.NEGATION_MODIFIER,
+            UniversalEnglishGrammaticalRelations.DETERMINER,
+            UniversalEnglishGrammaticalRelations.PREDETERMINER,
+            UniversalEnglishGrammaticalRelations.ADJECTIVAL_MODIFIER,
+            UniversalEnglishGrammaticalRelations.NUMERIC_MODIFIER,
+            UniversalEnglishGrammaticalRelations.COMPOUND_MODIFIER,
+            UniversalEnglishGrammaticalRelations.POSSESSION_MODIFIER,
+            UniversalEnglishGrammaticalRelations.CASE_MARKER
+    ));
+
     private ProcessConjunctions() {
         throw new AssertionError("No instances allowed!");
     }
@@ -44,11 +70,11 @@ public final class ProcessConjunctions {
                                                           IndexedConstituent constituent,
                                                           int index) {
         IndexedConstituent copy = constituent.clone();
-        copy.setSemanticGraph(copy.createReducedSemanticGraph());
+        copy.setGraph(constituent.createReducedGraph());
         List<Constituent> result = new ArrayList<>();
         result.add(copy);
         generateConstituents(
-                copy.getSemanticGraph(),
+                copy.getGraph(),
                 depTree,
                 copy,
                 copy.getRoot(),
@@ -61,7 +87,7 @@ public final class ProcessConjunctions {
     /**
      * Process CCs by exploring the graph from one constituent and generating more constituents as it encounters CCs.
      */
-    private static void generateConstituents(SemanticGraph semanticGraph,
+    private static void generateConstituents(SemanticGraphOverlay semanticGraph,
                                              Tree depTree,
                                              IndexedConstituent constituent,
                                              IndexedWord root,
@@ -69,8 +95,7 @@ public final class ProcessConjunctions {
                                              boolean firstLevel) {
 
         List<SemanticGraphEdge> outedges = semanticGraph.getOutEdgesSorted(root);
-        List<SemanticGraphEdge> conjunct = DpUtils.getEdges(outedges,
-                EnglishGrammaticalRelations.COORDINATION);
+        List<SemanticGraphEdge> conjunct = DpUtils.getEdges(outedges, DpUtils.ANY_CC_SD);
 
         Boolean processCC = true;
         SemanticGraphEdge predet = null;
@@ -110,7 +135,7 @@ public final class ProcessConjunctions {
             if (DpUtils.isAnyConj(edge) && processCC) {
                 boolean cont = false;
                 for (SemanticGraphEdge c : conjunct) {
-                    if ("&".equals(c.getDependent().lemma()) && nextToVerb(depTree, root.index(), edge.getDependent().index(), c.getDependent().index())) {
+                    if ("&".equals(c.getDependent().lemma()) && nextToVerb(depTree, semanticGraph, root, edge.getDependent().index(), c.getDependent().index())) {
                         cont = true;
                         break;
                     }
@@ -119,12 +144,12 @@ public final class ProcessConjunctions {
                 if (cont) continue;
 
                 IndexedWord newRoot = edge.getDependent();
-                SemanticGraph newSemanticGraph = new SemanticGraph(semanticGraph);
+                SemanticGraphOverlay newSemanticGraph = semanticGraph.copy();
                 if (predet != null && "both".equals(predet.getDependent().lemma()))
                     constituent.getExcludedVertexes().add(predet.getDependent());
 
                 IndexedConstituent newConstituent = constituent.clone();
-                newConstituent.setSemanticGraph(newSemanticGraph);
+                newConstituent.setGraph(newSemanticGraph);
                 if (firstLevel)
                     newConstituent.setRoot(newRoot);
                 constituents.add(newConstituent);
@@ -144,7 +169,7 @@ public final class ProcessConjunctions {
                     if (DpUtils.isPredet(ed) && "both".equals(ed.getDependent().lemma())) { //if it is one level down
                         semanticGraph.removeEdge(ed);
                     } else if (!DpUtils.isAnyConj(ed) && !DpUtils.isCc(ed) && !DpUtils.isPreconj(ed)
-                            && isDescendant(depTree, newRoot.index(), root.index(), child.index())) {
+                            && isDescendant(depTree, semanticGraph, newRoot.index(), root.index(), ed)) {
                         GrammaticalRelation reln = newSemanticGraph.reln(root, child);
                         double weight = newSemanticGraph.getEdge(root, child).getWeight();
                         newSemanticGraph.addEdge(newRoot, child, reln, weight, ed.isExtra());
@@ -186,9 +211,14 @@ public final class ProcessConjunctions {
      */
     // "He buys and sells electronic products" "Is products depending on both sells and buys?"
     private static boolean isDescendant(Tree parse,
+                                        SemanticGraphOverlay semanticGraph,
                                         int indexCheck,
                                         int indexPivot,
-                                        int indexElement) {
+                                        SemanticGraphEdge elementEdge) {
+        if (parse == null) {
+            return isDescendant(semanticGraph, indexCheck, indexPivot, elementEdge);
+        }
+        int indexElement = elementEdge.getDependent().index();
         Tree pivot = parse.getLeaves().get(indexPivot - 1); // because tree parse indexing system
         // starts with 0
         Tree check = parse.getLeaves().get(indexCheck - 1);
@@ -207,12 +237,64 @@ public final class ProcessConjunctions {
         return path != null;
     }
 
+    /**
+     * Approximates {@link #isDescendant(Tree, SemanticGraphOverlay, int, int, SemanticGraphEdge)}
+     * without a constituent tree.
+     * <p>
+     * The tree-based check tests whether the smallest constituent that contains the element and
+     * the pivot conjoint also contains the other conjoint. Since constituents are contiguous,
+     * this holds if the other conjoint lies between the pivot and the element. If the element
+     * lies between the pivot and the other conjoint, it belongs to the phrase of the pivot only
+     * ("He buys cars and sells bikes"). In the remaining case, the element lies on the other side
+     * of the pivot. It is shared unless its relation attaches it within the phrase of the pivot
+     * and the other conjoint has such dependents of its own, i.e., unless whole phrases are
+     * coordinated ("is" is shared in "He is smart and fat", but not in "He is fat but does not
+     * eat a lot").
+     */
+    private static boolean isDescendant(SemanticGraphOverlay semanticGraph,
+                                        int indexCheck,
+                                        int indexPivot,
+                                        SemanticGraphEdge elementEdge) {
+        int indexElement = elementEdge.getDependent().index();
+        if (Math.min(indexPivot, indexCheck) < indexElement
+                && indexElement < Math.max(indexPivot, indexCheck)) {
+            return false;
+        }
+        boolean beyondCheck = indexPivot < indexCheck
+                ? indexElement > indexCheck
+                : indexElement < indexCheck;
+        if (beyondCheck || !PHRASE_RELATIONS.contains(elementEdge.getRelation())) {
+            return true;
+        }
+        IndexedWord check = semanticGraph.getNodeByIndexSafe(indexCheck);
+        if (check == null) {
+            return true;
+        }
+        String tag = semanticGraph.tag(check) == null ? "" : semanticGraph.tag(check);
+        if (tag.startsWith("PRP") && !DpUtils.isCop(elementEdge) && !DpUtils.isCase(elementEdge)
+                && !DpUtils.isAux(elementEdge) && !DpUtils.isAuxPass(elementEdge)) {
+            return false; // pronouns take no modifiers ("My brother and I")
+        }
+        if (DpUtils.isCop(elementEdge) && (tag.equals("VB") || tag.equals("VBD") || tag.equals("VBP")
+                || tag.equals("VBZ"))) {
+            return false; // verbs do not take a copula ("He is big and seems happy")
+        }
+        for (SemanticGraphEdge edge : semanticGraph.outgoingEdgeIterable(check)) {
+            int index = edge.getDependent().index();
+            if (Math.min(indexPivot, indexCheck) < index && index < Math.max(indexPivot, indexCheck)
+                    && PHRASE_RELATIONS.contains(edge.getRelation())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
 
     /**
      * Retrieves the heads of the clauses according to the CCs processing options.
      * The result contains verbs conjoined and a complement if it is conjoined with a verb.
      */
-    public static List<IndexedWord> getIndexedWordsConj(SemanticGraph semanticGraph,
+    public static List<IndexedWord> getIndexedWordsConj(SemanticGraphOverlay semanticGraph,
                                                         Tree depTree,
                                                         IndexedWord root,
                                                         GrammaticalRelation rel,
@@ -226,19 +308,19 @@ public final class ProcessConjunctions {
                 List<SemanticGraphEdge> outed = semanticGraph
                         .outgoingEdgeList(edge.getDependent());
                 // first condition tests if verbs are involved in the conjoints. Conjunctions between complements are treated elsewhere. 
-                boolean ccVerbs = edge.getDependent().tag().charAt(0) == 'V'
-                        || edge.getGovernor().tag().charAt(0) == 'V';
+                boolean ccVerbs = semanticGraph.tag(edge.getDependent()).charAt(0) == 'V'
+                        || semanticGraph.tag(edge.getGovernor()).charAt(0) == 'V';
                 //This condition will check if there is a cop conjoined with a verb
-                boolean ccCop = DpUtils.findFirstOfRelationOrDescendent(outed, EnglishGrammaticalRelations.COPULA) != null;
+                boolean ccCop = DpUtils.findFirst(outed, DpUtils.ANY_COP_SD) != null;
                 // this condition checks if there are two main clauses conjoined by the CC
-                boolean ccMainClauses = DpUtils.findFirstOfRelationOrDescendent(outed, EnglishGrammaticalRelations.SUBJECT) != null
+                boolean ccMainClauses = DpUtils.findFirst(outed, DpUtils.ANY_SUBJ_SD) != null
                         ||
-                        DpUtils.findFirstOfRelationOrDescendent(outed, EnglishGrammaticalRelations.EXPLETIVE) != null;
+                        DpUtils.findFirst(outed, DpUtils.ANY_EXPL_SD) != null;
 
                 // This flag will check if the cc should be processed according to the flag and the
                 // shared elements.
                 boolean notProcess = !option.processCcAllVerbs && outed.isEmpty()
-                        && shareAll(outedges, depTree, root, edge.getDependent());
+                        && shareAll(semanticGraph, outedges, depTree, root, edge.getDependent());
 
                 if ((ccVerbs || ccCop) && !ccMainClauses && !notProcess) {
                     ccs.add(edge.getDependent());
@@ -250,13 +332,11 @@ public final class ProcessConjunctions {
 
                     //To remove the coordination
                     if (option.processCcAllVerbs || !notProcess) {
-                        List<SemanticGraphEdge> conjunct = DpUtils.getEdges(
-                                outedges, EnglishGrammaticalRelations.COORDINATION
-                        );
+                        List<SemanticGraphEdge> conjunct = DpUtils.getEdges(outedges, DpUtils.ANY_CC_SD);
                         for (SemanticGraphEdge e : conjunct) {
                             if (e.getDependent().index() > edge.getDependent().index())
                                 continue;
-                            if (nextToVerb(depTree, root.index(), edge.getDependent().index(), e
+                            if (nextToVerb(depTree, semanticGraph, root, edge.getDependent().index(), e
                                     .getDependent().index())) {
                                 toRemove.add(e);
                                 break;
@@ -276,7 +356,7 @@ public final class ProcessConjunctions {
      * Rewrites the graph so that each conjoint is independent from each other.
      * They will be disconnected and each dependent correspondingly assigned.
      */
-    private static void rewriteGraph(SemanticGraph semanticGraph,
+    private static void rewriteGraph(SemanticGraphOverlay semanticGraph,
                                      Tree depTree,
                                      List<IndexedWord> ccs) {
         for (int i = 0; i < ccs.size(); i++) {
@@ -293,7 +373,7 @@ public final class ProcessConjunctions {
                     IndexedWord child = ed.getDependent();
                     if (semanticGraph.getChildren(ccs.get(j)).contains(child)) continue;
                     if (!DpUtils.isAnyConj(ed) && !DpUtils.isCc(ed)
-                            && isDescendant(depTree, ccs.get(j).index(), ccs.get(i).index(), child.index())) {
+                            && isDescendant(depTree, semanticGraph, ccs.get(j).index(), ccs.get(i).index(), ed)) {
                         semanticGraph.addEdge(ccs.get(j), child, ed.getRelation(), ed.getWeight(), ed.isExtra());
                     }
                 }
@@ -306,9 +386,14 @@ public final class ProcessConjunctions {
      * Checks if two nodes are conjoined by a given conjunction.
      */
     private static boolean nextToVerb(Tree depTree,
-                                      int firstVerb,
+                                      SemanticGraphOverlay semanticGraph,
+                                      IndexedWord first,
                                       int secondVerb,
                                       int conj) {
+        if (depTree == null) {
+            return nextToVerb(semanticGraph, first, secondVerb, conj);
+        }
+        int firstVerb = first.index();
         Tree fverb = depTree.getLeaves().get(firstVerb - 1);
         Tree sverb = depTree.getLeaves().get(secondVerb - 1);
         Tree conjv = depTree.getLeaves().get(conj - 1);
@@ -359,17 +444,48 @@ public final class ProcessConjunctions {
             return false;
     }
 
+    /**
+     * Approximates {@link #nextToVerb(Tree, SemanticGraphOverlay, IndexedWord, int, int)} without a
+     * constituent tree.
+     * <p>
+     * The tree-based check requires the conjunction to be a sibling of the phrases of both
+     * conjoints, and at most two siblings between these phrases. Here, the siblings between the
+     * conjoints are the conjunctions, punctuation marks and further conjoints that depend on the
+     * first conjoint and lie between the two conjoints.
+     */
+    private static boolean nextToVerb(SemanticGraphOverlay semanticGraph,
+                                      IndexedWord first,
+                                      int secondVerb,
+                                      int conj) {
+        int from = Math.min(first.index(), secondVerb);
+        int to = Math.max(first.index(), secondVerb);
+        if (conj <= from || conj >= to) {
+            return false;
+        }
+        int siblings = 0;
+        for (SemanticGraphEdge edge : semanticGraph.outgoingEdgeIterable(first)) {
+            int index = edge.getDependent().index();
+            if (index > from && index < to
+                    && (DpUtils.isAnyConj(edge) || DpUtils.isCc(edge) || DpUtils.isPreconj(edge)
+                    || DpUtils.isPunct(edge))) {
+                siblings++;
+            }
+        }
+        return siblings <= 2;
+    }
+
     /**
      * Checks if two conjoints verbs share all dependents.
      */
-    private static boolean shareAll(List<SemanticGraphEdge> outedges,
+    private static boolean shareAll(SemanticGraphOverlay semanticGraph,
+                                    List<SemanticGraphEdge> outedges,
                                     Tree depTree,
                                     IndexedWord root,
                                     IndexedWord conj) {
         for (SemanticGraphEdge edge : outedges) {
             if (DpUtils.isAnySubj(edge) || edge.getDependent().equals(conj))
                 continue;
-            else if (!isDescendant(depTree, conj.index(), root.index(), edge.getDependent().index()))
+            else if (!isDescendant(depTree, semanticGraph, conj.index(), root.index(), edge))
                 return false;
         }
         return true;
@@ -3,7 +3,6 @@ package de.mpii.clausie;
 import edu.stanford.nlp.ling.CoreLabel;
 import edu.stanford.nlp.ling.IndexedWord;
 import edu.stanford.nlp.ling.Label;
-import edu.stanford.nlp.semgraph.SemanticGraph;
 import edu.stanford.nlp.trees.EnglishGrammaticalRelations;
 import edu.stanford.nlp.trees.GrammaticalRelation;
 
@@ -58,7 +57,7 @@ public abstract class PropositionGenerator {
         StringBuilder result = new StringBuilder();
         String separator = "";
         result.append(separator);
-        if (constituent.isPrepositionalPhrase()) {
+        if (constituent.isPrepositionalPhrase(clausIE.graph())) {
             if (clausIE.options.lemmatize) {
                 result.append(constituent.getRoot().lemma());
             } else {
@@ -113,7 +112,7 @@ public abstract class PropositionGenerator {
             return s;
         } else if (constituent instanceof IndexedConstituent) {
             IndexedConstituent iconstituent = (IndexedConstituent) constituent;
-            SemanticGraph subgraph = iconstituent.createReducedSemanticGraph();
+            SemanticGraphOverlay subgraph = iconstituent.createReducedGraph();
             DpUtils.removeEdges(
                     subgraph,
                     iconstituent.getRoot(),
@@ -124,7 +123,7 @@ public abstract class PropositionGenerator {
             for (IndexedWord v : iconstituent.getAdditionalVertexes()) {
                 words.addAll(subgraph.descendants(v));
             }
-            if (iconstituent.isPrepositionalPhrase())
+            if (iconstituent.isPrepositionalPhrase(clausIE.graph()))
                 words.remove(iconstituent.getRoot());
             return generatePhrase(iconstituent, words);
         } else {
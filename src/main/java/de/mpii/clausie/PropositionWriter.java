@@ -0,0 +1,186 @@
+package de.mpii.clausie;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Writes the propositions of {@link ExtractionResult}s, one record per proposition.
+ * <p>
+ * Each record holds the identifier of the sentence, the clause type, the constituents and the
+ * positions of the optional constituents (depending on the format). A sentence that has not been
+ * parsed (because its parse timed out or it is too long) results in a single record that marks
+ * its status. The records of a result are assembled
+ * in memory and passed to the underlying writer at once; use {@link #newBufferedWriter} for a
+ * buffered UTF-8 writer.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public abstract class PropositionWriter implements Closeable, Flushable {
+
+    /**
+     * Output formats.
+     */
+    public enum Format {
+        /**
+         * The historic ClausIE format: the identifier followed by the quoted constituents,
+         * separated by tabs. Quotes, backslashes and control characters in constituents are
+         * escaped with a backslash.
+         */
+        TEXT,
+
+        /**
+         * Tab-separated values: identifier, clause type, positions of optional constituents
+         * (comma-separated) and the constituents. Backslashes, tabs and line breaks in values are
+         * escaped with a backslash.
+         */
+        TSV,
+
+        /**
+         * One JSON object per line with fields {@code id}, {@code type}, {@code constituents} and
+         * {@code optional}.
+         */
+        JSONL
+    }
+
+    /**
+     * Size of the buffer of {@link #newBufferedWriter(OutputStream)}.
+     */
+    public static final int BUFFER_SIZE = 1 << 16;
+
+    private final Writer out;
+
+    /**
+     * Whether to write the PCFG score of the sentence with each record.
+     */
+    protected final boolean writeScore;
+
+    /**
+     * The records of the current result.
+     */
+    protected final StringBuilder record = new StringBuilder();
+    private char[] chars = new char[256];
+
+    // -- construction
+    // ----------------------------------------------------------------------------
+
+    protected PropositionWriter(Writer out,
+                                boolean writeScore) {
+        this.out = out;
+        this.writeScore = writeScore;
+    }
+
+    /**
+     * Creates a writer for a given format.
+     *
+     * @param format     The output format
+     * @param out        The underlying writer; should be buffered
+     * @param writeScore Whether to write the PCFG score of the sentence with each record
+     */
+    public static PropositionWriter create(Format format,
+                                           Writer out,
+                                           boolean writeScore) {
+        switch (format) {
+            case TEXT:
+                return new TextPropositionWriter(out, writeScore);
+            case TSV:
+                return new TsvPropositionWriter(out, writeScore);
+            case JSONL:
+                return new JsonPropositionWriter(out, writeScore);
+            default:
+                throw new IllegalArgumentException("Unknown format: " + format);
+        }
+    }
+
+    /**
+     * Returns a buffered writer that encodes into UTF-8.
+     */
+    public static Writer newBufferedWriter(OutputStream out) {
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    // -- writing
+    // ---------------------------------------------------------------------------------
+
+    /**
+     * Writes the records of a result.
+     */
+    public void write(ExtractionResult result) throws IOException {
+        record.setLength(0);
+        String id = result.getId() == null ? "" : result.getId();
+        if (result.getStatus() != ExtractionResult.Status.OK) {
+            appendStatus(id, result.getStatus().name().toLowerCase(Locale.ROOT));
+        } else {
+            for (Proposition proposition : result.getPropositions()) {
+                appendProposition(id, proposition, result.getPCFGScore());
+            }
+        }
+        int length = record.length();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, 2 * chars.length)];
+        }
+        record.getChars(0, length, chars, 0);
+        out.write(chars, 0, length);
+    }
+
+    /**
+     * Appends the record of a proposition, including the line terminator, to {@link #record}.
+     */
+    protected abstract void appendProposition(String id,
+                                              Proposition proposition,
+                                              double pcfgScore);
+
+    /**
+     * Appends the record of a sentence that has not been parsed to {@link #record}, e.g., with
+     * status {@code timeout} or {@code too_long}.
+     */
+    protected abstract void appendStatus(String id,
+                                         String status);
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * Appends a value with backslash escapes for backslashes, tabs, line breaks and (if
+     * {@code quote} is set) quotes.
+     */
+    static void appendEscaped(StringBuilder sb,
+                              String s,
+                              boolean quote) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '"':
+                    sb.append(quote ? "\\\"" : "\"");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+    }
+}
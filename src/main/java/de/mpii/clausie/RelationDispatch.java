@@ -0,0 +1,75 @@
+package de.mpii.clausie;
+
+import edu.stanford.nlp.semgraph.SemanticGraphEdge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A dispatch table from dependency relations to handlers.
+ * <p>
+ * Handlers are registered in order of priority for sets of relations, given as relation codes of
+ * {@link DpUtils}. A relation is dispatched to the first handler registered for any bit of its
+ * code, or to the default handler if there is none. The handler is found by testing the code of
+ * the relation (see {@link DpUtils#relation(SemanticGraphEdge)}, cached there) against the few
+ * registered sets in order. Instances are immutable and thread-safe.
+ *
+ * @param <H> The type of the handlers
+ */
+final class RelationDispatch<H> {
+
+    private final long[] relations;
+    private final List<H> handlers;
+    private final H otherwise;
+
+    private RelationDispatch(long[] relations,
+                             List<H> handlers,
+                             H otherwise) {
+        this.relations = relations;
+        this.handlers = handlers;
+        this.otherwise = otherwise;
+    }
+
+    /**
+     * Returns an empty table that dispatches all relations to the given handler.
+     */
+    static <H> RelationDispatch<H> of(H otherwise) {
+        return new RelationDispatch<>(new long[0], new ArrayList<>(), otherwise);
+    }
+
+    /**
+     * Returns a table that additionally dispatches the given relations to a handler, unless
+     * they are dispatched to a handler of this table.
+     *
+     * @param relations The relation codes of the relations
+     * @param handler   The handler of the relations
+     */
+    RelationDispatch<H> on(long relations,
+                           H handler) {
+        long[] newRelations = Arrays.copyOf(this.relations, this.relations.length + 1);
+        newRelations[this.relations.length] = relations;
+        List<H> newHandlers = new ArrayList<>(handlers);
+        newHandlers.add(handler);
+        return new RelationDispatch<>(newRelations, newHandlers, otherwise);
+    }
+
+    /**
+     * Returns the handler of the relation of an edge.
+     */
+    H get(SemanticGraphEdge edge) {
+        return get(DpUtils.relation(edge));
+    }
+
+    /**
+     * Returns the handler of a relation given by its code.
+     */
+    H get(long code) {
+        for (int i = 0; i < relations.length; i++) {
+            if ((code & relations[i]) != 0) {
+                return handlers.get(i);
+            }
+        }
+        return otherwise;
+    }
+}
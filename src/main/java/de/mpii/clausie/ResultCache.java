@@ -0,0 +1,231 @@
+package de.mpii.clausie;
+
+import java.text.Normalizer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded in-memory cache of extraction results, from which the least recently used results
+ * are evicted.
+ * <p>
+ * Input crawled from the web often repeats sentences (e.g., boilerplate). With a cache set on
+ * {@link ClausIEEngine#setResultCache(ResultCache)}, a repeated sentence is answered by a lookup
+ * instead of being parsed again. A result is identified by the normalized text of its sentence
+ * (NFC, trimmed, runs of whitespace replaced by a single space) and by the
+ * {@link Options#fingerprint() fingerprint} of the options it was extracted with, so that one
+ * cache can be shared by engines with different options. Only completely processed sentences
+ * are cached.
+ * <p>
+ * The cache is split into segments, each of which is a synchronized LRU map; a key is assigned
+ * to a segment by its hash. Threads that access different segments do not block each other.
+ * Since each segment evicts its own least recently used result, the cache may evict results
+ * before it is completely full. Instances are thread-safe.
+ */
+public final class ResultCache {
+
+    /**
+     * Maximum number of segments (a power of two).
+     */
+    private static final int SEGMENTS = 16;
+
+    private final int capacity;
+    private final Segment[] segments;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructs a cache that holds up to {@code capacity} results.
+     */
+    public ResultCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        // every segment holds at least one result, and the capacities of the segments add up
+        segments = new Segment[Math.min(SEGMENTS, Integer.highestOneBit(capacity))];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(capacity / segments.length + (i < capacity % segments.length ? 1 : 0));
+        }
+    }
+
+    /**
+     * Returns the cached result for a sentence, or {@code null} if there is none.
+     *
+     * @param fingerprint The fingerprint of the options
+     * @param sentence    The sentence
+     */
+    public ExtractionResult get(long fingerprint,
+                                String sentence) {
+        Key key = new Key(fingerprint, sentence);
+        ExtractionResult result = segment(key).get(key);
+        if (result != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Adds the result for a sentence. Results of sentences that have not been processed
+     * completely are not cached.
+     */
+    public void put(long fingerprint,
+                    String sentence,
+                    ExtractionResult result) {
+        if (result.getStatus() != ExtractionResult.Status.OK) {
+            return;
+        }
+        Key key = new Key(fingerprint, sentence);
+        segment(key).put(key, result);
+    }
+
+    private Segment segment(Key key) {
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+    }
+
+    // -- statistics
+    // ------------------------------------------------------------------------------
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of cached results.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Resets the numbers of hits, misses and evictions; the cached results are kept.
+     */
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    /**
+     * Returns a summary of the hits, misses and evictions so far.
+     */
+    public String getReport() {
+        long h = hits.sum();
+        long m = misses.sum();
+        return String.format("result cache: %d hits, %d misses (%.1f%% hits), %d evictions, %d/%d results",
+                h, m, h + m > 0 ? 100.0 * h / (h + m) : 0.0, evictions.sum(), size(), capacity);
+    }
+
+    // -- implementation
+    // --------------------------------------------------------------------------
+
+    /**
+     * Normalizes the text of a sentence.
+     */
+    static String normalize(String sentence) {
+        StringBuilder sb = new StringBuilder(sentence.length());
+        boolean space = false;
+        for (int i = 0; i < sentence.length(); i++) {
+            char c = sentence.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = sb.length() > 0;
+            } else {
+                if (space) {
+                    sb.append(' ');
+                    space = false;
+                }
+                sb.append(c);
+            }
+        }
+        return Normalizer.normalize(sb, Normalizer.Form.NFC);
+    }
+
+    /**
+     * A normalized sentence and the fingerprint of the options.
+     */
+    private static final class Key {
+
+        private final long fingerprint;
+        private final String text;
+        private final int hash;
+
+        Key(long fingerprint,
+            String sentence) {
+            this.fingerprint = fingerprint;
+            this.text = normalize(sentence);
+            this.hash = 31 * Long.hashCode(fingerprint) + text.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return fingerprint == key.fingerprint && text.equals(key.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * A part of the cache: a map in access order that removes its eldest entry when full.
+     */
+    private final class Segment {
+
+        private final Map<Key, ExtractionResult> map;
+
+        Segment(int capacity) {
+            map = new LinkedHashMap<Key, ExtractionResult>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, ExtractionResult> eldest) {
+                    if (size() > capacity) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        synchronized ExtractionResult get(Key key) {
+            return map.get(key);
+        }
+
+        synchronized void put(Key key,
+                              ExtractionResult result) {
+            map.put(key, result);
+        }
+
+        synchronized int size() {
+            return map.size();
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package de.mpii.clausie;
+
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.semgraph.SemanticGraphEdge;
+import edu.stanford.nlp.trees.GrammaticalRelation;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A modifiable view of the {@link SemanticGraph} of a sentence: the graph of the sentence plus
+ * the edges removed from it and the edges added to it.
+ * <p>
+ * Clause detection and the processing of coordinating conjunctions modify the graph of the
+ * sentence for each clause and constituent. Instead of copying the whole graph each time, they
+ * work on overlays, which share the (unmodified) graph of the sentence and only store their own
+ * changes; {@link #copy()} copies these changes only. The methods have the same names and
+ * results as those of {@link SemanticGraph}. Edges are compared with
+ * {@link SemanticGraphEdge#equals(Object)}, i.e., by governor, dependent and relation. Vertexes
+ * are neither added nor removed, so that all edges must connect vertexes of the sentence.
+ * <p>
+ * The graph of the sentence is held in compact form ({@link SentenceGraph}), which also stores
+ * the sorted edges of each vertex, so that the edges of vertexes without changes are returned
+ * without sorting. Outgoing and incoming edges are returned with the remaining edges of the
+ * sentence first (in the order of the graph of the sentence), followed by the added edges (in the
+ * order in which they were added).
+ */
+public final class SemanticGraphOverlay {
+
+    /**
+     * The graph of the sentence, which is not modified.
+     */
+    private final SentenceGraph base;
+
+    /**
+     * Positions of the edges of {@link #base} that have been removed.
+     */
+    private final BitSet removed;
+
+    /**
+     * Edges that have been added, in order.
+     */
+    private final List<SemanticGraphEdge> added;
+
+    /**
+     * Constructs an overlay of the given graph without changes.
+     */
+    public SemanticGraphOverlay(SemanticGraph base) {
+        this(new SentenceGraph(base));
+    }
+
+    /**
+     * Constructs an overlay of the given graph without changes.
+     */
+    SemanticGraphOverlay(SentenceGraph base) {
+        this(base, new BitSet(), new ArrayList<>());
+    }
+
+    private SemanticGraphOverlay(SentenceGraph base,
+                                 BitSet removed,
+                                 List<SemanticGraphEdge> added) {
+        this.base = base;
+        this.removed = removed;
+        this.added = added;
+    }
+
+    /**
+     * Returns an independent copy of this overlay, which shares the graph of the sentence.
+     */
+    public SemanticGraphOverlay copy() {
+        return new SemanticGraphOverlay(base, (BitSet) removed.clone(), new ArrayList<>(added));
+    }
+
+    /**
+     * Returns the graph of the sentence.
+     */
+    public SemanticGraph getBase() {
+        return base.getSemanticGraph();
+    }
+
+    /**
+     * Returns the graph of the sentence in compact form.
+     */
+    SentenceGraph getSentenceGraph() {
+        return base;
+    }
+
+    /**
+     * Checks whether edges have been removed or added.
+     */
+    public boolean isModified() {
+        return !removed.isEmpty() || !added.isEmpty();
+    }
+
+    /**
+     * Returns a {@link SemanticGraph} with the edges of this overlay. The graph is a new copy
+     * of the graph of the sentence, unless the overlay has not been modified.
+     */
+    public SemanticGraph toSemanticGraph() {
+        if (!isModified()) {
+            return base.getSemanticGraph();
+        }
+        SemanticGraph result = new SemanticGraph(base.getSemanticGraph());
+        for (int e = removed.nextSetBit(0); e >= 0; e = removed.nextSetBit(e + 1)) {
+            result.removeEdge(base.edge(e));
+        }
+        for (SemanticGraphEdge edge : added) {
+            result.addEdge(edge.getGovernor(), edge.getDependent(), edge.getRelation(), edge.getWeight(),
+                    edge.isExtra());
+        }
+        return result;
+    }
+
+    // -- modification
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Adds an edge and returns it.
+     */
+    public SemanticGraphEdge addEdge(IndexedWord governor,
+                                     IndexedWord dependent,
+                                     GrammaticalRelation relation,
+                                     double weight,
+                                     boolean isExtra) {
+        SemanticGraphEdge edge = new SemanticGraphEdge(governor, dependent, relation, weight, isExtra);
+        added.add(edge);
+        return edge;
+    }
+
+    /**
+     * Removes an edge. As in {@link SemanticGraph#removeEdge(SemanticGraphEdge)}, only one edge
+     * is removed if there are several equal edges, the edges of the sentence first.
+     *
+     * @return whether the edge was present
+     */
+    public boolean removeEdge(SemanticGraphEdge edge) {
+        int v = base.id(edge.getGovernor());
+        if (v >= 0) {
+            for (int e = base.outStart(v); e < base.outStart(v + 1); e++) {
+                if (!removed.get(e) && (base.edge(e) == edge || base.edge(e).equals(edge))) {
+                    removed.set(e);
+                    return true;
+                }
+            }
+        }
+        return added.remove(edge);
+    }
+
+    // -- edges
+    // -----------------------------------------------------------------------------------
+
+    /**
+     * Returns the outgoing edges of a vertex, in the order of
+     * {@link SemanticGraph#outgoingEdgeList(IndexedWord)}.
+     */
+    public List<SemanticGraphEdge> outgoingEdgeList(IndexedWord vertex) {
+        List<SemanticGraphEdge> result = new ArrayList<>();
+        int v = base.id(vertex);
+        if (v >= 0) {
+            for (int e = base.outStart(v); e < base.outStart(v + 1); e++) {
+                if (!removed.get(e)) {
+                    result.add(base.edge(e));
+                }
+            }
+        }
+        addOutgoing(vertex, result);
+        return result;
+    }
+
+    public Iterable<SemanticGraphEdge> outgoingEdgeIterable(IndexedWord vertex) {
+        return outgoingEdgeList(vertex);
+    }
+
+    public List<SemanticGraphEdge> getOutEdgesSorted(IndexedWord vertex) {
+        List<SemanticGraphEdge> result = new ArrayList<>();
+        int v = base.id(vertex);
+        if (v >= 0) {
+            for (int i = base.outStart(v); i < base.outStart(v + 1); i++) {
+                int e = base.outSorted(i);
+                if (!removed.get(e)) {
+                    result.add(base.edge(e));
+                }
+            }
+        }
+        if (addOutgoing(vertex, result)) {
+            Collections.sort(result);
+        }
+        return result;
+    }
+
+    public List<SemanticGraphEdge> getIncomingEdgesSorted(IndexedWord vertex) {
+        List<SemanticGraphEdge> result = new ArrayList<>();
+        int v = base.id(vertex);
+        if (v >= 0) {
+            for (int i = base.inStart(v); i < base.inStart(v + 1); i++) {
+                int e = base.inSorted(i);
+                if (!removed.get(e)) {
+                    result.add(base.edge(e));
+                }
+            }
+        }
+        boolean sort = false;
+        for (SemanticGraphEdge edge : added) {
+            if (edge.getDependent().equals(vertex)) {
+                result.add(edge);
+                sort = true;
+            }
+        }
+        if (sort) {
+            Collections.sort(result);
+        }
+        return result;
+    }
+
+    /**
+     * Adds the added outgoing edges of a vertex to a list and returns whether there are any.
+     */
+    private boolean addOutgoing(IndexedWord vertex,
+                                List<SemanticGraphEdge> result) {
+        boolean any = false;
+        for (SemanticGraphEdge edge : added) {
+            if (edge.getGovernor().equals(vertex)) {
+                result.add(edge);
+                any = true;
+            }
+        }
+        return any;
+    }
+
+    /**
+     * Returns the first edge from the governor to the dependent, or {@code null} if there is none.
+     */
+    public SemanticGraphEdge getEdge(IndexedWord governor,
+                                     IndexedWord dependent) {
+        int v = base.id(governor);
+        int w = base.id(dependent);
+        if (v >= 0 && w >= 0) {
+            for (int e = base.outStart(v); e < base.outStart(v + 1); e++) {
+                if (base.dependent(e) == w && !removed.get(e)) {
+                    return base.edge(e);
+                }
+            }
+        }
+        for (SemanticGraphEdge edge : added) {
+            if (edge.getGovernor().equals(governor) && edge.getDependent().equals(dependent)) {
+                return edge;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the relation of the first edge from the governor to the dependent, or
+     * {@code null} if there is none.
+     */
+    public GrammaticalRelation reln(IndexedWord governor,
+                                    IndexedWord dependent) {
+        SemanticGraphEdge edge = getEdge(governor, dependent);
+        return edge != null ? edge.getRelation() : null;
+    }
+
+    // -- vertexes
+    // --------------------------------------------------------------------------------
+
+    public boolean containsVertex(IndexedWord vertex) {
+        return base.id(vertex) >= 0;
+    }
+
+    public IndexedWord getNodeByIndexSafe(int index) {
+        return base.getNodeByIndexSafe(index);
+    }
+
+    /**
+     * Returns the part-of-speech tag of a vertex of the sentence.
+     */
+    public String tag(IndexedWord vertex) {
+        int v = base.id(vertex);
+        return v >= 0 ? base.tag(v) : vertex.tag();
+    }
+
+    public boolean hasChildren(IndexedWord vertex) {
+        int v = base.id(vertex);
+        if (v >= 0) {
+            int e = removed.nextClearBit(base.outStart(v));
+            if (e < base.outStart(v + 1)) {
+                return true;
+            }
+        }
+        for (SemanticGraphEdge edge : added) {
+            if (edge.getGovernor().equals(vertex)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Set<IndexedWord> getChildren(IndexedWord vertex) {
+        Set<IndexedWord> result = new HashSet<>();
+        for (SemanticGraphEdge edge : outgoingEdgeList(vertex)) {
+            result.add(edge.getDependent());
+        }
+        return result;
+    }
+
+    public Set<IndexedWord> getParents(IndexedWord vertex) {
+        Set<IndexedWord> result = new HashSet<>();
+        for (SemanticGraphEdge edge : getIncomingEdgesSorted(vertex)) {
+            result.add(edge.getGovernor());
+        }
+        return result;
+    }
+
+    public List<IndexedWord> getParentList(IndexedWord vertex) {
+        List<IndexedWord> result = new ArrayList<>(getParents(vertex));
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Returns the parent of a vertex on its path to a root of the sentence, as
+     * {@link SemanticGraph#getParent(IndexedWord)}.
+     */
+    public IndexedWord getParent(IndexedWord vertex) {
+        List<IndexedWord> path = getPathToRoot(vertex, new ArrayList<>());
+        return path != null && !path.isEmpty() ? path.get(path.size() - 1) : null;
+    }
+
+    /**
+     * Returns the path from a root to the parent of a vertex, avoiding the vertexes in
+     * {@code used}, or {@code null} if there is none.
+     */
+    private List<IndexedWord> getPathToRoot(IndexedWord vertex,
+                                            List<IndexedWord> used) {
+        used.add(vertex);
+        List<IndexedWord> parents = getParentList(vertex);
+        parents.removeAll(used);
+        Collection<IndexedWord> roots = base.getRoots();
+        if (roots.contains(vertex) || parents.isEmpty()) {
+            used.remove(used.size() - 1);
+            return roots.contains(vertex) ? new ArrayList<>() : null;
+        }
+        for (IndexedWord parent : parents) {
+            List<IndexedWord> path = getPathToRoot(parent, used);
+            if (path != null) {
+                path.add(parent);
+                used.remove(used.size() - 1);
+                return path;
+            }
+        }
+        used.remove(used.size() - 1);
+        return null;
+    }
+
+    /**
+     * Returns the other children of the parent of a vertex (see {@link #getParent(IndexedWord)}).
+     */
+    public Collection<IndexedWord> getSiblings(IndexedWord vertex) {
+        IndexedWord parent = getParent(vertex);
+        if (parent == null) {
+            return Collections.emptySet();
+        }
+        Set<IndexedWord> result = getChildren(parent);
+        result.remove(vertex);
+        return result;
+    }
+
+    /**
+     * Returns the vertex and all its descendants.
+     */
+    public Set<IndexedWord> descendants(IndexedWord vertex) {
+        Set<IndexedWord> result = new HashSet<>();
+        descendants(vertex, result);
+        return result;
+    }
+
+    private void descendants(IndexedWord vertex,
+                             Set<IndexedWord> result) {
+        if (result.add(vertex)) {
+            for (SemanticGraphEdge edge : outgoingEdgeList(vertex)) {
+                descendants(edge.getDependent(), result);
+            }
+        }
+    }
+}
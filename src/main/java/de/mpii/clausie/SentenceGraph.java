@@ -0,0 +1,308 @@
+package de.mpii.clausie;
+
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.semgraph.SemanticGraphEdge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The dependency graph of a sentence in compact form, which is built once per sentence and not
+ * modified.
+ * <p>
+ * Vertexes are numbered in the order of {@link SemanticGraph#vertexSet()} and found by their
+ * token index. The edges are stored in compressed sparse row form: the outgoing edges of vertex
+ * {@code v} are the edges at positions {@code outStart[v]} to {@code outStart[v + 1] - 1}, in the
+ * order of {@link SemanticGraph#outgoingEdgeList(IndexedWord)}, so that all edges are in the order
+ * of {@link SemanticGraph#edgeIterable()}. For each edge, the vertexes it connects and the code of
+ * its relation (see {@link DpUtils#relation(SemanticGraphEdge)}) are stored as well, and the
+ * outgoing and incoming edges of each vertex are also stored sorted as by
+ * {@link SemanticGraph#getOutEdgesSorted(IndexedWord)} and
+ * {@link SemanticGraph#getIncomingEdgesSorted(IndexedWord)}. Instances are immutable and
+ * modified through {@link SemanticGraphOverlay}.
+ */
+final class SentenceGraph {
+
+    private final SemanticGraph semanticGraph;
+
+    // -- vertexes
+    private final IndexedWord[] vertexes;
+    private final String[] tags;
+    private final boolean[] roots;
+
+    /**
+     * The vertex of each token index (the first one if several vertexes share an index), or -1.
+     */
+    private final int[] vertexByIndex;
+
+    /**
+     * The vertexes that share their index with another vertex (e.g., copy nodes), or
+     * {@code null} if there are none.
+     */
+    private final Map<IndexedWord, Integer> copies;
+
+    // -- edges
+    private final SemanticGraphEdge[] edges;
+    private final int[] governors;
+    private final int[] dependents;
+    private final long[] relations;
+    private final int[] outStart;
+    private final int[] outSorted;
+    private final int[] inStart;
+    private final int[] inSorted;
+
+    SentenceGraph(SemanticGraph semanticGraph) {
+        this.semanticGraph = semanticGraph;
+        int n = semanticGraph.size();
+        vertexes = semanticGraph.vertexSet().toArray(new IndexedWord[n]);
+        tags = new String[n];
+        roots = new boolean[n];
+        int maxIndex = 0;
+        for (IndexedWord vertex : vertexes) {
+            maxIndex = Math.max(maxIndex, vertex.index());
+        }
+        vertexByIndex = new int[maxIndex + 1];
+        Arrays.fill(vertexByIndex, -1);
+        Map<IndexedWord, Integer> copies = null;
+        for (int v = 0; v < n; v++) {
+            IndexedWord vertex = vertexes[v];
+            tags[v] = vertex.tag();
+            if (vertex.index() < 0) {
+                continue;
+            }
+            if (vertexByIndex[vertex.index()] < 0) {
+                vertexByIndex[vertex.index()] = v;
+            } else {
+                if (copies == null) {
+                    copies = new HashMap<>();
+                }
+                copies.put(vertex, v);
+            }
+        }
+        this.copies = copies;
+        for (IndexedWord root : semanticGraph.getRoots()) {
+            int v = id(root);
+            if (v >= 0) {
+                roots[v] = true;
+            }
+        }
+
+        // outgoing edges in the order of the graph
+        List<SemanticGraphEdge> edgeList = new ArrayList<>();
+        outStart = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            outStart[v] = edgeList.size();
+            for (SemanticGraphEdge edge : semanticGraph.outgoingEdgeIterable(vertexes[v])) {
+                edgeList.add(edge);
+            }
+        }
+        outStart[n] = edgeList.size();
+        int m = edgeList.size();
+        edges = edgeList.toArray(new SemanticGraphEdge[m]);
+        governors = new int[m];
+        dependents = new int[m];
+        relations = new long[m];
+        int[] inDegree = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            for (int e = outStart[v]; e < outStart[v + 1]; e++) {
+                governors[e] = v;
+                dependents[e] = id(edges[e].getDependent());
+                relations[e] = DpUtils.relation(edges[e]);
+                inDegree[dependents[e] + 1]++;
+            }
+        }
+
+        // sorted outgoing and incoming edges
+        outSorted = new int[m];
+        for (int e = 0; e < m; e++) {
+            outSorted[e] = e;
+        }
+        inStart = inDegree;
+        for (int v = 0; v < n; v++) {
+            inStart[v + 1] += inStart[v];
+        }
+        inSorted = new int[m];
+        int[] next = Arrays.copyOf(inStart, n);
+        for (int e = 0; e < m; e++) {
+            inSorted[next[dependents[e]]++] = e;
+        }
+        for (int v = 0; v < n; v++) {
+            sort(outSorted, outStart[v], outStart[v + 1]);
+            sort(inSorted, inStart[v], inStart[v + 1]);
+        }
+    }
+
+    /**
+     * Sorts a range of edge positions by their edges.
+     */
+    private void sort(int[] positions,
+                      int from,
+                      int to) {
+        // lists of edges are short; insertion sort is stable, as Collections.sort
+        for (int i = from + 1; i < to; i++) {
+            int e = positions[i];
+            int j = i;
+            while (j > from && edges[positions[j - 1]].compareTo(edges[e]) > 0) {
+                positions[j] = positions[j - 1];
+                j--;
+            }
+            positions[j] = e;
+        }
+    }
+
+    SemanticGraph getSemanticGraph() {
+        return semanticGraph;
+    }
+
+    // -- vertexes
+    // --------------------------------------------------------------------------------
+
+    /**
+     * Returns the number of vertexes.
+     */
+    int size() {
+        return vertexes.length;
+    }
+
+    /**
+     * Returns the number of a vertex, or -1 if it is not part of the graph.
+     */
+    int id(IndexedWord vertex) {
+        int index = vertex.index();
+        if (index >= 0 && index < vertexByIndex.length) {
+            int v = vertexByIndex[index];
+            if (v >= 0 && (vertexes[v] == vertex || vertexes[v].equals(vertex))) {
+                return v;
+            }
+        }
+        if (copies != null) {
+            Integer v = copies.get(vertex);
+            if (v != null) {
+                return v;
+            }
+        }
+        return -1;
+    }
+
+    IndexedWord vertex(int v) {
+        return vertexes[v];
+    }
+
+    /**
+     * Returns the number of token indexes, i.e., the largest index plus one.
+     */
+    int indexCount() {
+        return vertexByIndex.length;
+    }
+
+    /**
+     * Returns the vertex that represents a token index (see {@link #tokenIndex(IndexedWord)}), or
+     * {@code null} if there is none.
+     */
+    IndexedWord vertexAt(int index) {
+        int v = index >= 0 && index < vertexByIndex.length ? vertexByIndex[index] : -1;
+        return v >= 0 ? vertexes[v] : null;
+    }
+
+    /**
+     * Returns the token index of a vertex if the vertex represents its index, i.e., if it is the
+     * first vertex of the graph with that index, or -1 otherwise (e.g., for copy nodes).
+     */
+    int tokenIndex(IndexedWord vertex) {
+        int index = vertex.index();
+        IndexedWord v = vertexAt(index);
+        return v != null && (v == vertex || v.equals(vertex)) ? index : -1;
+    }
+
+    /**
+     * Returns the part-of-speech tag of a vertex.
+     */
+    String tag(int v) {
+        return tags[v];
+    }
+
+    boolean isRoot(int v) {
+        return roots[v];
+    }
+
+    /**
+     * Returns the first vertex with the given token index, or {@code null} if there is none.
+     */
+    IndexedWord getNodeByIndexSafe(int index) {
+        if (copies == null) {
+            return index >= 0 && index < vertexByIndex.length && vertexByIndex[index] >= 0
+                    ? vertexes[vertexByIndex[index]] : null;
+        }
+        return semanticGraph.getNodeByIndexSafe(index);
+    }
+
+    Collection<IndexedWord> getRoots() {
+        return semanticGraph.getRoots();
+    }
+
+    // -- edges
+    // -----------------------------------------------------------------------------------
+
+    /**
+     * Returns the number of edges.
+     */
+    int edgeCount() {
+        return edges.length;
+    }
+
+    SemanticGraphEdge edge(int e) {
+        return edges[e];
+    }
+
+    int governor(int e) {
+        return governors[e];
+    }
+
+    int dependent(int e) {
+        return dependents[e];
+    }
+
+    /**
+     * Returns the code of the relation of an edge (see {@link DpUtils#relation(SemanticGraphEdge)}).
+     */
+    long relation(int e) {
+        return relations[e];
+    }
+
+    /**
+     * Returns the position of the first outgoing edge of a vertex; the outgoing edges of vertex
+     * {@code v} are at positions {@code outStart(v)} to {@code outStart(v + 1) - 1}.
+     */
+    int outStart(int v) {
+        return outStart[v];
+    }
+
+    /**
+     * Returns the i-th edge of all outgoing edges sorted by vertex and then as by
+     * {@link SemanticGraph#getOutEdgesSorted(IndexedWord)}; the sorted outgoing edges of vertex
+     * {@code v} are {@code outSorted(outStart(v))} to {@code outSorted(outStart(v + 1) - 1)}.
+     */
+    int outSorted(int i) {
+        return outSorted[i];
+    }
+
+    /**
+     * Returns the position of the first incoming edge of a vertex in {@link #inSorted(int)}.
+     */
+    int inStart(int v) {
+        return inStart[v];
+    }
+
+    /**
+     * Returns the i-th edge of all incoming edges sorted by vertex and then as by
+     * {@link SemanticGraph#getIncomingEdgesSorted(IndexedWord)}.
+     */
+    int inSorted(int i) {
+        return inSorted[i];
+    }
+}
@@ -0,0 +1,22 @@
+package de.mpii.clausie;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads sentences from an input format other than one sentence per line, e.g.,
+ * {@link ConllUReader} or {@link DocumentReader}.
+ */
+public interface SentenceReader extends Closeable {
+
+    /**
+     * Returns the next sentence, or {@code null} if there are no more sentences.
+     */
+    InputSentence next() throws IOException;
+
+    /**
+     * Returns the number of the line of the input where the last sentence returned by
+     * {@link #next()} starts (or the first line of its paragraph).
+     */
+    int getLineNumber();
+}
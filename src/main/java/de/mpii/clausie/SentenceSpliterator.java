@@ -0,0 +1,118 @@
+package de.mpii.clausie;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * A {@link Spliterator} over a sequential source of sentences that splits into small batches.
+ * <p>
+ * The spliterators of the JDK for sources of unknown size hand out batches of at least 1024
+ * elements, so that a corpus of a few thousand sentences is processed by a handful of threads
+ * only. Processing a sentence is expensive compared to reading it; this spliterator therefore
+ * reads only {@code batchSize} sentences per split. If the size of the source is known, the
+ * batches may be split further.
+ */
+final class SentenceSpliterator implements Spliterator<InputSentence> {
+
+    /**
+     * Default number of sentences read per split.
+     */
+    static final int DEFAULT_BATCH_SIZE = 16;
+
+    private final Iterator<InputSentence> it;
+    private final int batchSize;
+    private long estimatedSize;
+
+    /**
+     * Constructs a spliterator over the given sentences.
+     *
+     * @param it            The source of sentences
+     * @param estimatedSize The number of sentences in the source, or {@link Long#MAX_VALUE} if
+     *                      unknown
+     * @param batchSize     The number of sentences read per split
+     */
+    SentenceSpliterator(Iterator<InputSentence> it,
+                        long estimatedSize,
+                        int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.it = it;
+        this.estimatedSize = estimatedSize;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Returns a spliterator over sentences without identifier. The identifier of each sentence is
+     * set to its position in the source (starting from 1).
+     */
+    static SentenceSpliterator numbered(Iterator<String> it,
+                                        long estimatedSize,
+                                        int batchSize) {
+        return new SentenceSpliterator(new Iterator<InputSentence>() {
+            long position;
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public InputSentence next() {
+                String text = it.next();
+                position++;
+                return new InputSentence(Long.toString(position), text);
+            }
+        }, estimatedSize, batchSize);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super InputSentence> action) {
+        if (!it.hasNext()) {
+            return false;
+        }
+        action.accept(it.next());
+        decreaseEstimate(1);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super InputSentence> action) {
+        while (it.hasNext()) {
+            action.accept(it.next());
+        }
+        estimatedSize = 0;
+    }
+
+    @Override
+    public Spliterator<InputSentence> trySplit() {
+        if (!it.hasNext()) {
+            return null;
+        }
+        InputSentence[] batch = new InputSentence[batchSize];
+        int n = 0;
+        while (n < batchSize && it.hasNext()) {
+            batch[n++] = it.next();
+        }
+        decreaseEstimate(n);
+        return Spliterators.spliterator(batch, 0, n, ORDERED | NONNULL | IMMUTABLE);
+    }
+
+    private void decreaseEstimate(long n) {
+        if (estimatedSize != Long.MAX_VALUE) {
+            estimatedSize = Math.max(0, estimatedSize - n);
+        }
+    }
+
+    @Override
+    public long estimateSize() {
+        return estimatedSize;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+}
@@ -0,0 +1,230 @@
+package de.mpii.clausie;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregates the time spent in the stages of the extraction pipeline.
+ * <p>
+ * With statistics set on {@link ClausIEEngine#setStageTimes(StageTimes)}, the engine, the
+ * {@link DependencyProvider} and the command-line interface add the time (in nanoseconds) of
+ * each execution of a stage. For each stage, the number of executions, the total time and a
+ * histogram of the times are kept; {@link #getReport()} summarizes them with percentiles. The
+ * histogram has logarithmic buckets with eight sub-buckets per power of two, so that a
+ * percentile is accurate to 12.5%. Adding a time takes a few atomic increments and does not
+ * allocate. Instances are thread-safe.
+ * <p>
+ * Stages may be nested: the processing of coordinating conjunctions and of xcomps is part of the
+ * generation of propositions, and the times of nested stages are included in the time of their
+ * enclosing stage.
+ */
+public final class StageTimes {
+
+    /**
+     * The stages of the extraction pipeline.
+     */
+    public enum Stage {
+        TOKENIZATION("tokenization"),
+        PARSING("pcfg parsing"),
+        CONVERSION("dependency conversion"),
+        CLAUSE_DETECTION("clause detection"),
+        CONJUNCTIONS("coordinating conjunctions"),
+        XCOMPS("xcomps"),
+        PROPOSITIONS("proposition generation"),
+        OUTPUT("output");
+
+        private final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * Times below this number of nanoseconds have a bucket each.
+     */
+    private static final int LINEAR_BUCKETS = 16;
+
+    /**
+     * Number of bits of the sub-bucket within a power of two.
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int BUCKETS = bucket(Long.MAX_VALUE) + 1;
+
+    private final Histogram[] histograms = new Histogram[Stage.values().length];
+
+    public StageTimes() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new Histogram();
+        }
+    }
+
+    /**
+     * Adds the time of an execution of a stage.
+     *
+     * @param stage The stage
+     * @param nanos The time in nanoseconds
+     */
+    public void add(Stage stage,
+                    long nanos) {
+        histograms[stage.ordinal()].add(Math.max(nanos, 0));
+    }
+
+    /**
+     * Discards the times added so far, e.g., those of a warm-up. Times that are added while the
+     * statistics are reset may be discarded partly.
+     */
+    public void reset() {
+        for (Histogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    // -- statistics
+    // ------------------------------------------------------------------------------
+
+    /**
+     * Returns the number of executions of a stage.
+     */
+    public long getCount(Stage stage) {
+        return histograms[stage.ordinal()].count.sum();
+    }
+
+    /**
+     * Returns the total time in nanoseconds spent in a stage.
+     */
+    public long getTotalNanos(Stage stage) {
+        return histograms[stage.ordinal()].total.sum();
+    }
+
+    /**
+     * Returns the maximum time in nanoseconds of an execution of a stage, or 0 if there is none.
+     */
+    public long getMaxNanos(Stage stage) {
+        return histograms[stage.ordinal()].max.get();
+    }
+
+    /**
+     * Returns (an upper bound of) the given percentile of the times of a stage in nanoseconds,
+     * or 0 if the stage has not been executed.
+     *
+     * @param stage      The stage
+     * @param percentile The percentile, between 0 and 100
+     */
+    public long getPercentile(Stage stage,
+                              double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile not between 0 and 100: " + percentile);
+        }
+        return histograms[stage.ordinal()].percentile(percentile);
+    }
+
+    /**
+     * Returns a summary of the executions, the total time and the percentiles of the times of
+     * each stage that has been executed, one stage per line.
+     */
+    public String getReport() {
+        StringBuilder sb = new StringBuilder("stage times:");
+        boolean any = false;
+        for (Stage stage : Stage.values()) {
+            long count = getCount(stage);
+            if (count == 0) {
+                continue;
+            }
+            any = true;
+            sb.append(String.format("%n  %-26s %9d x, total %9.3f s, p50 %8.3f ms, p90 %8.3f ms, "
+                            + "p99 %8.3f ms, max %8.3f ms",
+                    stage.getLabel() + ":", count, getTotalNanos(stage) / 1e9,
+                    getPercentile(stage, 50) / 1e6, getPercentile(stage, 90) / 1e6,
+                    getPercentile(stage, 99) / 1e6, getMaxNanos(stage) / 1e6));
+        }
+        if (!any) {
+            sb.append(" nothing measured");
+        }
+        return sb.toString();
+    }
+
+    // -- histogram
+    // -------------------------------------------------------------------------------
+
+    /**
+     * Returns the bucket of a (non-negative) time.
+     */
+    private static int bucket(long nanos) {
+        if (nanos < LINEAR_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+        return LINEAR_BUCKETS + ((exponent - 4) << SUB_BUCKET_BITS) + subBucket;
+    }
+
+    /**
+     * Returns the largest time of a bucket.
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int exponent = ((bucket - LINEAR_BUCKETS) >> SUB_BUCKET_BITS) + 4;
+        long subBucket = (bucket - LINEAR_BUCKETS) & ((1 << SUB_BUCKET_BITS) - 1);
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long lowerBound = ((1L << SUB_BUCKET_BITS) + subBucket) * width;
+        return lowerBound + (width - 1);
+    }
+
+    /**
+     * The times of a stage.
+     */
+    private static final class Histogram {
+
+        final LongAdder count = new LongAdder();
+        final LongAdder total = new LongAdder();
+        final LongAccumulator max = new LongAccumulator(Math::max, 0);
+        final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        void add(long nanos) {
+            count.increment();
+            total.add(nanos);
+            max.accumulate(nanos);
+            buckets.incrementAndGet(bucket(nanos));
+        }
+
+        void reset() {
+            count.reset();
+            total.reset();
+            max.reset();
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+        }
+
+        long percentile(double percentile) {
+            // the buckets are read one by one while times may be added; count them here
+            long[] counts = new long[BUCKETS];
+            long n = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                n += counts[i];
+            }
+            if (n == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), max.get());
+                }
+            }
+            return max.get();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package de.mpii.clausie;
+
+import java.io.Writer;
+
+/**
+ * Writes propositions in the historic ClausIE format (see {@link PropositionWriter.Format#TEXT}).
+ */
+final class TextPropositionWriter extends PropositionWriter {
+
+    TextPropositionWriter(Writer out,
+                          boolean writeScore) {
+        super(out, writeScore);
+    }
+
+    @Override
+    protected void appendProposition(String id,
+                                     Proposition proposition,
+                                     double pcfgScore) {
+        record.append(id);
+        for (String constituent : proposition.constituents) {
+            record.append("\t\"");
+            appendEscaped(record, constituent, true);
+            record.append('"');
+        }
+        if (writeScore) {
+            record.append('\t').append(pcfgScore);
+        }
+        record.append('\n');
+    }
+
+    @Override
+    protected void appendStatus(String id,
+                                String status) {
+        record.append(id).append('\t').append(status).append('\n');
+    }
+}
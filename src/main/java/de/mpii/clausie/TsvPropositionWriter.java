@@ -0,0 +1,47 @@
+package de.mpii.clausie;
+
+import java.io.Writer;
+
+/**
+ * Writes propositions as tab-separated values (see {@link PropositionWriter.Format#TSV}). The
+ * PCFG score, if requested, is written as last column.
+ */
+final class TsvPropositionWriter extends PropositionWriter {
+
+    TsvPropositionWriter(Writer out,
+                         boolean writeScore) {
+        super(out, writeScore);
+    }
+
+    @Override
+    protected void appendProposition(String id,
+                                     Proposition proposition,
+                                     double pcfgScore) {
+        appendEscaped(record, id, false);
+        record.append('\t');
+        appendEscaped(record, String.valueOf(proposition.getType()), false);
+        record.append('\t');
+        String sep = "";
+        for (int i = 0; i < proposition.constituents.size(); i++) {
+            if (proposition.optional.contains(i)) {
+                record.append(sep).append(i);
+                sep = ",";
+            }
+        }
+        for (String constituent : proposition.constituents) {
+            record.append('\t');
+            appendEscaped(record, constituent, false);
+        }
+        if (writeScore) {
+            record.append('\t').append(pcfgScore);
+        }
+        record.append('\n');
+    }
+
+    @Override
+    protected void appendStatus(String id,
+                                String status) {
+        appendEscaped(record, id, false);
+        record.append('\t').append(status).append('\n');
+    }
+}
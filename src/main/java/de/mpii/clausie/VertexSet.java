@@ -0,0 +1,184 @@
+package de.mpii.clausie;
+
+import edu.stanford.nlp.ling.IndexedWord;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+
+/**
+ * A set of vertexes of the graph of a sentence, stored as a bit set of token indexes.
+ * <p>
+ * The vertexes are mapped to token indexes by the {@link SentenceGraph} of the sentence, which
+ * is shared by all sets of the sentence, so that copies, unions and membership tests are
+ * operations on words of bits. Vertexes that do not represent their token index in the graph
+ * (e.g., copy nodes) are kept in a separate sorted set. As a {@link TreeSet}, the set iterates
+ * over the vertexes in sentence order and does not permit {@code null}.
+ */
+final class VertexSet extends AbstractSet<IndexedWord> {
+
+    /**
+     * The token table, or {@code null} if all vertexes are kept in {@link #others}.
+     */
+    private final SentenceGraph table;
+    private final BitSet indexes;
+    private TreeSet<IndexedWord> others;
+
+    /**
+     * Constructs an empty set of vertexes of the given graph (may be {@code null}).
+     */
+    VertexSet(SentenceGraph table) {
+        this.table = table;
+        this.indexes = new BitSet(table != null ? table.indexCount() : 0);
+    }
+
+    /**
+     * Constructs a set of vertexes of the given graph with the given vertexes.
+     */
+    VertexSet(SentenceGraph table,
+              Collection<IndexedWord> vertexes) {
+        this(table);
+        addAll(vertexes);
+    }
+
+    /**
+     * Constructs a copy of a set.
+     */
+    VertexSet(VertexSet set) {
+        this.table = set.table;
+        this.indexes = (BitSet) set.indexes.clone();
+        this.others = set.others != null && !set.others.isEmpty() ? new TreeSet<>(set.others) : null;
+    }
+
+    private int index(Object o) {
+        return table != null && o instanceof IndexedWord ? table.tokenIndex((IndexedWord) o) : -1;
+    }
+
+    @Override
+    public boolean add(IndexedWord vertex) {
+        int index = index(vertex);
+        if (index >= 0) {
+            boolean result = !indexes.get(index);
+            indexes.set(index);
+            return result;
+        }
+        if (others == null) {
+            others = new TreeSet<>();
+        }
+        return others.add(vertex);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends IndexedWord> vertexes) {
+        if (!(vertexes instanceof VertexSet) || ((VertexSet) vertexes).table != table) {
+            return super.addAll(vertexes);
+        }
+        VertexSet set = (VertexSet) vertexes;
+        int size = size();
+        indexes.or(set.indexes);
+        if (set.others != null && !set.others.isEmpty()) {
+            if (others == null) {
+                others = new TreeSet<>();
+            }
+            others.addAll(set.others);
+        }
+        return size() != size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        int index = index(o);
+        if (index >= 0) {
+            return indexes.get(index);
+        }
+        return others != null && others.contains(o);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        int index = index(o);
+        if (index >= 0) {
+            boolean result = indexes.get(index);
+            indexes.clear(index);
+            return result;
+        }
+        return others != null && others.remove(o);
+    }
+
+    @Override
+    public void clear() {
+        indexes.clear();
+        others = null;
+    }
+
+    @Override
+    public int size() {
+        return indexes.cardinality() + (others != null ? others.size() : 0);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return indexes.isEmpty() && (others == null || others.isEmpty());
+    }
+
+    /**
+     * Iterates over the vertexes in sentence order by merging the token indexes and the other
+     * vertexes.
+     */
+    @Override
+    public Iterator<IndexedWord> iterator() {
+        return new Iterator<IndexedWord>() {
+            private int nextIndex = indexes.nextSetBit(0);
+            // iterates over a copy, so that other vertexes can be removed
+            private final Iterator<IndexedWord> otherIterator =
+                    others != null && !others.isEmpty() ? new ArrayList<>(others).iterator() : null;
+            private IndexedWord nextOther = nextOther();
+            private IndexedWord last;
+            private boolean lastOther;
+
+            private IndexedWord nextOther() {
+                return otherIterator != null && otherIterator.hasNext() ? otherIterator.next() : null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return nextIndex >= 0 || nextOther != null;
+            }
+
+            @Override
+            public IndexedWord next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                IndexedWord vertex = nextIndex >= 0 ? table.vertexAt(nextIndex) : null;
+                if (vertex == null || nextOther != null && nextOther.compareTo(vertex) < 0) {
+                    last = nextOther;
+                    lastOther = true;
+                    nextOther = nextOther();
+                } else {
+                    last = vertex;
+                    lastOther = false;
+                    nextIndex = indexes.nextSetBit(nextIndex + 1);
+                }
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                if (lastOther) {
+                    others.remove(last);
+                } else {
+                    indexes.clear(last.index());
+                }
+                last = null;
+            }
+        };
+    }
+}
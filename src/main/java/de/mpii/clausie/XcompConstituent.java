@@ -6,7 +6,6 @@ import edu.stanford.nlp.semgraph.SemanticGraph;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
-import java.util.TreeSet;
 
 /**
  * An {@code XcompConstituent} of a clause formed out of an xcomp.
@@ -41,6 +40,17 @@ public class XcompConstituent extends IndexedConstituent {
                             IndexedWord root,
                             Type type,
                             List<Clause> clauses) {
+        this(new SemanticGraphOverlay(semanticGraph), root, type, clauses);
+    }
+
+    /**
+     * Constructs a new constituent for the xcomp relation with an overlay of the graph of the
+     * sentence.
+     */
+    XcompConstituent(SemanticGraphOverlay semanticGraph,
+                     IndexedWord root,
+                     Type type,
+                     List<Clause> clauses) {
         super(semanticGraph, root, type);
         setClauses(clauses);
     }
@@ -63,6 +73,19 @@ public class XcompConstituent extends IndexedConstituent {
                             Set<IndexedWord> excludedVertexes,
                             Type type,
                             List<Clause> clauses) {
+        this(new SemanticGraphOverlay(semanticGraph), root, additionalVertexes, excludedVertexes, type, clauses);
+    }
+
+    /**
+     * Constructs a new indexed constituent for the xcomp relation with an overlay of the graph of
+     * the sentence.
+     */
+    XcompConstituent(SemanticGraphOverlay semanticGraph,
+                     IndexedWord root,
+                     Set<IndexedWord> additionalVertexes,
+                     Set<IndexedWord> excludedVertexes,
+                     Type type,
+                     List<Clause> clauses) {
         super(semanticGraph, root, additionalVertexes, excludedVertexes, type);
         setClauses(clauses);
     }
@@ -85,10 +108,10 @@ public class XcompConstituent extends IndexedConstituent {
     public XcompConstituent clone() {
         XcompConstituent clone = new XcompConstituent();
         clone.type = type;
-        clone.semanticGraph = new SemanticGraph(getSemanticGraph());
+        clone.semanticGraph = semanticGraph.copy();
         clone.root = getRoot();
-        clone.additionalVertexes = new TreeSet<>(additionalVertexes);
-        clone.excludedVertexes = new TreeSet<>(excludedVertexes);
+        clone.additionalVertexes = new VertexSet((VertexSet) additionalVertexes);
+        clone.excludedVertexes = new VertexSet((VertexSet) excludedVertexes);
         clone.clauses = new ArrayList<>(clauses);
         return clone;
     }
@@ -0,0 +1,93 @@
+package de.mpii.clausie;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ClausIEServerTest {
+
+    private ClausIEEngine engine;
+    private ClausIEServer server;
+
+    @Before
+    public void startServer() throws IOException {
+        engine = new ClausIEEngine(new Options(), TestParses.pcfg());
+        engine.setStageTimes(new StageTimes());
+        engine.setResultCache(new ResultCache(100));
+        server = new ClausIEServer(engine, 0, 2);
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop();
+        // the parser is shared with other tests
+        engine.setStageTimes(null);
+        engine.close();
+    }
+
+    @Test
+    public void statisticsExcludeWarmUp() throws IOException {
+        assertEquals("ok\n", request("GET", "/health", null));
+        String stats = request("GET", "/stats", null);
+        assertTrue(stats, stats.contains(": 0 sentences parsed"));
+        assertTrue(stats, stats.contains("stage times: nothing measured"));
+        assertTrue(stats, stats.contains("result cache: 0 hits, 0 misses"));
+        assertEquals(0, engine.getStageTimes().getCount(StageTimes.Stage.PARSING));
+
+        String results = request("POST", "/extract", "1\tHe sleeps.\n2\tShe sings and he sleeps.\n");
+        assertTrue(results, results.startsWith("{\"results\":["));
+        stats = request("GET", "/stats", null);
+        assertTrue(stats, stats.contains(": 2 sentences parsed"));
+        assertEquals(2, engine.getStageTimes().getCount(StageTimes.Stage.PARSING));
+        assertEquals(2, engine.getStageTimes().getCount(StageTimes.Stage.OUTPUT));
+        assertTrue(stats, stats.contains("result cache: 0 hits, 2 misses"));
+    }
+
+    @Test
+    public void failedWarmUpStopsServer() throws IOException {
+        // without a dependency provider, the workers cannot parse their first sentence
+        ClausIEServer failing = new ClausIEServer(new ClausIEEngine(new Options(), (DependencyProvider) null), 0, 2);
+        try {
+            failing.start();
+            fail("the warm-up has not failed");
+        } catch (IOException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    private String request(String method,
+                           String path,
+                           String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection)
+                new URL("http://localhost:" + server.getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        assertEquals(200, connection.getResponseCode());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[4096];
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                bytes.write(buffer, 0, n);
+            }
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,34 @@
+package de.mpii.clausie;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class ClausIETest {
+
+    @Test
+    public void defaultOptionsArePerInstance() {
+        ClausIE first = new ClausIE();
+        ClausIE second = new ClausIE();
+        assertNotSame(first.getOptions(), second.getOptions());
+    }
+
+    @Test
+    public void sharedOptionsAreReleasedOnClose() throws IOException {
+        ClausIE first = ClausIE.shared();
+        ClausIE second = ClausIE.shared();
+        assertSame(first.getOptions(), second.getOptions());
+        Options options = first.getOptions();
+        first.close();
+        second.close();
+        ClausIE third = ClausIE.shared();
+        try {
+            assertNotSame(options, third.getOptions());
+        } finally {
+            third.close();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package de.mpii.clausie;
+
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.semgraph.SemanticGraphEdge;
+import edu.stanford.nlp.trees.UniversalEnglishGrammaticalRelations;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ClauseAncestorsTest {
+
+    @Test
+    public void parentIsStrictAncestor() {
+        SemanticGraph graph = new SemanticGraph(TestParses.dependencies(
+                "He/PRP/2/nsubj said/VBD/0/root she/PRP/4/nsubj left/VBD/2/ccomp ./.").getSemanticGraph());
+        List<Clause> clauses = Arrays.asList(new Clause(), new Clause());
+        ClauseAncestors ancestors = new ClauseAncestors(new SentenceGraph(graph), clauses,
+                Arrays.asList(graph.getNodeByIndex(2), graph.getNodeByIndex(4)));
+        // a clause is not its own parent, even if its root has a governor
+        assertSame(clauses.get(0), ancestors.parentOf(graph.getNodeByIndex(4)));
+        assertNull(ancestors.parentOf(graph.getNodeByIndex(2)));
+        // vertexes that are not clause roots resolve to the clause of their nearest ancestor
+        assertSame(clauses.get(1), ancestors.parentOf(graph.getNodeByIndex(3)));
+        assertSame(clauses.get(0), ancestors.parentOf(graph.getNodeByIndex(1)));
+    }
+
+    @Test
+    public void parentsOfParsedSentences() {
+        for (String sentence : TestParses.SENTENCES) {
+            ClausIE clausIE = new ClausIE();
+            clausIE.process(TestParses.parse(sentence));
+            clausIE.detectClauses();
+            List<IndexedWord> roots = new ArrayList<>();
+            for (Clause clause : clausIE.getClauses()) {
+                roots.add(clause.root);
+            }
+            for (Clause clause : clausIE.getClauses()) {
+                Clause expected = null;
+                if (clause.root != null) {
+                    int index = ancestorOf(clausIE.getSemanticGraph(), clause.root, roots, new ArrayList<>());
+                    expected = index >= 0 ? clausIE.getClauses().get(index) : null;
+                }
+                assertSame(sentence + " / " + clause, expected, clause.getParentClause());
+            }
+        }
+    }
+
+    @Test
+    public void cyclesDoNotHideAncestors() {
+        // A <- B <- R (the root) with an additional edge A -> B, and clauses rooted at R, Q and C,
+        // where Q is a child of B and C a child of A: the search from Q reaches A while B is on
+        // the search path, and A reaches R only through B
+        SemanticGraph graph = new SemanticGraph(TestParses.dependencies(
+                "A/NN/2/dep B/NN/3/dep R/VB/0/root Q/VB/2/ccomp C/VB/1/ccomp").getSemanticGraph());
+        IndexedWord a = graph.getNodeByIndex(1);
+        IndexedWord b = graph.getNodeByIndex(2);
+        graph.addEdge(a, b, UniversalEnglishGrammaticalRelations.CONJUNCT, 1, false);
+        List<IndexedWord> roots = Arrays.asList(graph.getNodeByIndex(3), graph.getNodeByIndex(4),
+                graph.getNodeByIndex(5));
+        for (List<Integer> order : Arrays.asList(Arrays.asList(1, 2), Arrays.asList(2, 1))) {
+            List<Clause> clauses = Arrays.asList(new Clause(), new Clause(), new Clause());
+            ClauseAncestors ancestors = new ClauseAncestors(new SentenceGraph(graph), clauses, roots);
+            for (int i : order) {
+                assertSame("order " + order + ", clause " + i, clauses.get(0), ancestors.parentOf(roots.get(i)));
+            }
+            assertNull(ancestors.parentOf(roots.get(0)));
+        }
+        assertEquals(2, graph.getIncomingEdgesSorted(b).size());
+    }
+
+    /**
+     * Returns the index of the first clause whose root is the nearest strict ancestor of a vertex,
+     * searching depth-first along the sorted incoming edges without following cycles, or -1.
+     */
+    private static int ancestorOf(SemanticGraph graph,
+                                  IndexedWord vertex,
+                                  List<IndexedWord> roots,
+                                  List<IndexedWord> path) {
+        path.add(vertex);
+        try {
+            for (SemanticGraphEdge edge : graph.getIncomingEdgesSorted(vertex)) {
+                IndexedWord governor = edge.getGovernor();
+                int index = roots.indexOf(governor);
+                if (index >= 0) {
+                    return index;
+                }
+                if (!path.contains(governor)) {
+                    index = ancestorOf(graph, governor, roots, path);
+                    if (index >= 0) {
+                        return index;
+                    }
+                }
+            }
+            return -1;
+        } finally {
+            path.remove(path.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package de.mpii.clausie;
+
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.semgraph.SemanticGraphEdge;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IndexedConstituentTest {
+
+    @Test
+    public void semanticGraphOfUnmodifiedConstituentIsSentenceGraph() {
+        SemanticGraph graph = TestParses.dependencies("Bell/NNP/2/nsubj makes/VBZ/0/root products/NNS/2/dobj ./.")
+                .getSemanticGraph();
+        IndexedWord root = graph.getFirstRoot();
+        IndexedConstituent constituent = new IndexedConstituent(graph, root, Constituent.Type.VERB);
+        assertSame(graph, constituent.getSemanticGraph());
+        assertSame(graph, constituent.getSentSemanticGraph());
+    }
+
+    @Test
+    public void semanticGraphReflectsChangesOfOverlay() {
+        SemanticGraph graph = TestParses.dependencies("Bell/NNP/2/nsubj makes/VBZ/0/root products/NNS/2/dobj ./.")
+                .getSemanticGraph();
+        IndexedWord root = graph.getFirstRoot();
+        IndexedWord object = graph.getNodeByIndex(3);
+        IndexedConstituent constituent = new IndexedConstituent(graph, root,
+                Collections.<IndexedWord>emptySet(), Collections.singleton(object), Constituent.Type.VERB);
+        SemanticGraph reduced = constituent.createReducedSemanticGraph();
+        assertFalse(reduced.containsEdge(root, object));
+        assertTrue(graph.containsEdge(root, object));
+
+        SemanticGraphOverlay overlay = constituent.getGraph().copy();
+        SemanticGraphEdge edge = overlay.getEdge(root, object);
+        overlay.removeEdge(edge);
+        constituent.setGraph(overlay);
+        assertEquals(graph.edgeCount() - 1, constituent.getSemanticGraph().edgeCount());
+        assertSame(graph, constituent.getSentSemanticGraph());
+
+        constituent.setSemanticGraph(graph);
+        assertSame(graph, constituent.getSemanticGraph());
+    }
+
+    @Test
+    public void prepositionalPhrase() {
+        // "the man whom I saw": the constituent rooted at "whom" is attached by a relative
+        // relation to its clause
+        SemanticGraph graph = TestParses.dependencies("the/DT/2/det man/NN/0/root whom/WP/5/rel "
+                + "I/PRP/5/nsubj saw/VBD/2/acl:relcl").getSemanticGraph();
+        IndexedConstituent whom = new IndexedConstituent(graph, graph.getNodeByIndex(3),
+                Constituent.Type.ADVERBIAL);
+        IndexedConstituent man = new IndexedConstituent(graph, graph.getNodeByIndex(2),
+                Constituent.Type.SUBJECT);
+        assertTrue(whom.isPrepositionalPhrase());
+        assertFalse(man.isPrepositionalPhrase());
+        assertEquals(whom.isPrepositionalPhrase(new SemanticGraphOverlay(graph)), whom.isPrepositionalPhrase());
+    }
+}
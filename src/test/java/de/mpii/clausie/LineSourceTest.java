@@ -0,0 +1,149 @@
+package de.mpii.clausie;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LineSourceTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void lineTerminators() throws IOException {
+        assertLines("one\r\ntwo\rthree\nfour", "one", "two", "three", "four");
+        assertLines("one\r\n\r\ntwo\r\n", "one", "", "two");
+        assertLines("one\r\rtwo\n\r", "one", "", "two", "");
+    }
+
+    @Test
+    public void byteOrderMarkIsSkipped() throws IOException {
+        assertLines("\ufefffirst\nsecond\n", "first", "second");
+        assertLines("\ufeff", new String[0]);
+        // only at the start
+        assertLines("first\n\ufeffsecond", "first", "\ufeffsecond");
+    }
+
+    @Test
+    public void emptyLines() throws IOException {
+        assertLines("", new String[0]);
+        assertLines("\n", "");
+        assertLines("one\n", "one");
+        assertLines("one\n\n", "one", "");
+        assertLines("one\n\ntwo", "one", "", "two");
+    }
+
+    @Test
+    public void linesCrossingTheBuffer() throws IOException {
+        // multi-byte characters are split at the end of the buffer
+        StringBuilder longLine = new StringBuilder();
+        while (longLine.length() < 3 * LineSource.BUFFER_SIZE) {
+            longLine.append("a\u00e9\u20ac\ud83d\ude00 ");
+        }
+        assertLines("short\n" + longLine + "\nlast", "short", longLine.toString(), "last");
+
+        // \r\n split at the end of the buffer
+        char[] filler = new char[LineSource.BUFFER_SIZE - 1];
+        Arrays.fill(filler, 'x');
+        String first = new String(filler);
+        assertLines(first + "\r\nsecond\r\n", first, "second");
+        assertLines("y" + first + "\r\nsecond", "y" + first, "second");
+    }
+
+    @Test
+    public void malformedInputIsReplaced() throws IOException {
+        byte[] bytes = {'a', (byte) 0xff, 'b', '\n', (byte) 0xc3};
+        assertLines(bytes, "a\ufffdb", "\ufffd");
+    }
+
+    @Test
+    public void partsOfLines() throws IOException {
+        byte[] bytes = "  # comment\n 12\t He sleeps. \n \t\n-7\tx".getBytes(StandardCharsets.UTF_8);
+        try (LineSource lines = LineSource.of(new ByteArrayInputStream(bytes))) {
+            assertTrue(lines.next());
+            assertTrue(lines.isComment());
+            assertEquals(1, lines.getLineNumber());
+
+            assertTrue(lines.next());
+            assertFalse(lines.isComment());
+            int tab = lines.indexOf('\t');
+            assertEquals(3, tab);
+            assertEquals(12, lines.parseInt(0, tab));
+            assertEquals("He sleeps.", lines.text(tab + 1, lines.length()));
+
+            assertTrue(lines.next());
+            assertTrue(lines.isBlank());
+
+            assertTrue(lines.next());
+            assertEquals(-7, lines.parseInt(0, lines.indexOf('\t')));
+            assertEquals(4, lines.getLineNumber());
+            assertFalse(lines.next());
+        }
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void invalidNumber() throws IOException {
+        try (LineSource lines = LineSource.of(new ByteArrayInputStream("1x2".getBytes(StandardCharsets.UTF_8)))) {
+            lines.next();
+            lines.parseInt(0, lines.length());
+        }
+    }
+
+    private void assertLines(String content,
+                             String... expected) throws IOException {
+        assertLines(content.getBytes(StandardCharsets.UTF_8), expected);
+    }
+
+    /**
+     * Checks that a stream, a file and a gzip-compressed file with the given content have the
+     * expected lines.
+     */
+    private void assertLines(byte[] content,
+                             String... expected) throws IOException {
+        List<String> lines = Arrays.asList(expected);
+        assertEquals("stream", lines, read(LineSource.of(new ByteArrayInputStream(content))));
+
+        Path file = folder.newFile("lines.txt").toPath();
+        Files.write(file, content);
+        assertEquals("file", lines, read(LineSource.open(file)));
+
+        Path gz = folder.newFile("lines.txt.gz").toPath();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(content);
+        }
+        Files.write(gz, compressed.toByteArray());
+        assertEquals("gzip", lines, read(LineSource.open(gz)));
+
+        Files.delete(file);
+        Files.delete(gz);
+    }
+
+    private static List<String> read(LineSource source) throws IOException {
+        List<String> result = new ArrayList<>();
+        try (LineSource lines = source) {
+            while (lines.next()) {
+                assertEquals(result.size() + 1, lines.getLineNumber());
+                result.add(lines.line());
+            }
+        }
+        return result.isEmpty() ? Collections.<String>emptyList() : result;
+    }
+}
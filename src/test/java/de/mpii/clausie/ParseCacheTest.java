@@ -0,0 +1,276 @@
+package de.mpii.clausie;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class ParseCacheTest {
+
+    private static final String SENTENCE_1 = "Bell/NNP/2/nsubj makes/VBZ/0/root products/NNS/2/dobj ./.";
+    private static final String SENTENCE_2 = "It/PRP/4/nsubj does/VBZ/4/aux not/RB/4/neg work/VB/0/root ./.";
+    private static final String SENTENCE_3 = "He/PRP/2/nsubj sleeps/VBZ/0/root ./.";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void clearInterrupt() {
+        Thread.interrupted();
+    }
+
+    /**
+     * A provider that returns fixed parses and counts the sentences it parses.
+     */
+    private static final class FixedProvider implements DependencyProvider {
+
+        final Map<String, DependencyParse> parses = new HashMap<>();
+        int parsed;
+        boolean interrupt;
+
+        FixedProvider(String... sentences) {
+            for (String sentence : sentences) {
+                DependencyParse parse = TestParses.dependencies(sentence);
+                parses.put(words(parse.getTokens()), parse);
+            }
+        }
+
+        @Override
+        public String getName() {
+            return "fixed";
+        }
+
+        @Override
+        public List<CoreLabel> tokenize(String sentence) {
+            return ClausIE.toTokens(Arrays.asList(sentence.split(" ")), null);
+        }
+
+        @Override
+        public DependencyParse parse(List<CoreLabel> tokens) {
+            parsed++;
+            if (interrupt) {
+                // as the deadline of the engine that expires right after the parse
+                Thread.currentThread().interrupt();
+            }
+            DependencyParse parse = parses.get(words(tokens));
+            return new DependencyParse(tokens, parse.getSemanticGraph(), null, parse.getScore());
+        }
+    }
+
+    /**
+     * A provider that parses with the PCFG parser and counts the sentences it parses.
+     */
+    private static final class CountingProvider implements DependencyProvider {
+
+        int parsed;
+
+        @Override
+        public String getName() {
+            return TestParses.pcfg().getName();
+        }
+
+        @Override
+        public List<CoreLabel> tokenize(String sentence) {
+            return TestParses.pcfg().tokenize(sentence);
+        }
+
+        @Override
+        public DependencyParse parse(List<CoreLabel> tokens) {
+            parsed++;
+            return TestParses.pcfg().parse(tokens);
+        }
+    }
+
+    private static String words(List<CoreLabel> tokens) {
+        StringBuilder sb = new StringBuilder();
+        for (CoreLabel token : tokens) {
+            sb.append(sb.length() > 0 ? " " : "").append(token.word());
+        }
+        return sb.toString();
+    }
+
+    private static String text(String sentence) {
+        StringBuilder sb = new StringBuilder();
+        for (String token : sentence.split(" ")) {
+            sb.append(sb.length() > 0 ? " " : "").append(token.split("/")[0]);
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void parsesAreReadAfterReopening() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("parses.bin");
+        CountingProvider provider = new CountingProvider();
+        List<DependencyParse> expected = new ArrayList<>();
+        try (ParseCache cache = ParseCache.open(path, provider)) {
+            for (String sentence : TestParses.SENTENCES) {
+                expected.add(cache.parse(cache.tokenize(sentence)));
+            }
+            assertEquals(TestParses.SENTENCES.size(), cache.size());
+        }
+        assertEquals(TestParses.SENTENCES.size(), provider.parsed);
+
+        try (ParseCache cache = ParseCache.open(path, provider)) {
+            assertEquals(TestParses.SENTENCES.size(), cache.size());
+            for (int i = 0; i < TestParses.SENTENCES.size(); i++) {
+                assertSameParse(expected.get(i), cache.parse(cache.tokenize(TestParses.SENTENCES.get(i))));
+            }
+        }
+        assertEquals(TestParses.SENTENCES.size(), provider.parsed);
+    }
+
+    @Test
+    public void incompleteLastRecordIsTruncated() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("parses.bin");
+        CountingProvider provider = new CountingProvider();
+        List<String> sentences = TestParses.SENTENCES.subList(0, 3);
+        try (ParseCache cache = ParseCache.open(path, provider)) {
+            for (String sentence : sentences) {
+                cache.parse(cache.tokenize(sentence));
+            }
+        }
+        // cut the last record, as a crash while writing it
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+        long truncated = Files.size(path);
+
+        try (ParseCache cache = ParseCache.open(path, provider)) {
+            assertEquals(sentences.size() - 1, cache.size());
+            assertTrue(Files.size(path) < truncated);
+            for (String sentence : sentences) {
+                cache.parse(cache.tokenize(sentence));
+            }
+            assertEquals(sentences.size() + 1, provider.parsed);
+        }
+        try (ParseCache cache = ParseCache.open(path, provider)) {
+            assertEquals(sentences.size(), cache.size());
+            for (String sentence : sentences) {
+                cache.parse(cache.tokenize(sentence));
+            }
+            assertEquals(sentences.size() + 1, provider.parsed);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void fileOfOtherProviderIsRejected() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("parses.bin");
+        ParseCache.open(path, new FixedProvider()).close();
+        ParseCache.open(path, new CountingProvider()).close();
+    }
+
+    private static void assertSameParse(DependencyParse expected,
+                                        DependencyParse actual) {
+        assertEquals(expected.getSemanticGraph().toList(), actual.getSemanticGraph().toList());
+        assertEquals(expected.getSemanticGraph().getRoots(), actual.getSemanticGraph().getRoots());
+        assertEquals(String.valueOf(expected.getTree()), String.valueOf(actual.getTree()));
+        assertEquals(expected.getScore(), actual.getScore(), 0);
+        assertEquals(expected.getTokens().size(), actual.getTokens().size());
+        for (int i = 0; i < expected.getTokens().size(); i++) {
+            CoreLabel token = expected.getTokens().get(i);
+            CoreLabel other = actual.getTokens().get(i);
+            assertEquals(token.word(), other.word());
+            assertEquals(token.tag(), other.tag());
+            assertEquals(token.lemma(), other.lemma());
+            assertEquals(token.beginPosition(), other.beginPosition());
+        }
+    }
+
+    @Test
+    public void interruptDuringParseKeepsCacheOpen() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("parses.bin");
+        FixedProvider provider = new FixedProvider(SENTENCE_1, SENTENCE_2);
+        provider.interrupt = true;
+        try (ParseCache cache = ParseCache.open(path, provider)) {
+            for (String sentence : Arrays.asList(SENTENCE_1, SENTENCE_2)) {
+                DependencyParse parse = cache.parse(cache.tokenize(text(sentence)));
+                assertNotNull(parse);
+                // the interrupt is passed on to the caller
+                assertTrue(Thread.interrupted());
+            }
+            assertFalse(cache.isDisabled());
+            assertEquals(2, cache.size());
+        }
+        provider.interrupt = false;
+        try (ParseCache cache = ParseCache.open(path, provider)) {
+            assertEquals(2, cache.size());
+            cache.parse(cache.tokenize(text(SENTENCE_1)));
+            cache.parse(cache.tokenize(text(SENTENCE_2)));
+            assertEquals(2, provider.parsed);
+        }
+    }
+
+    @Test
+    public void commandLineWithCacheAndTimeout() throws IOException {
+        Path cache = folder.getRoot().toPath().resolve("cli.bin");
+        Path out = folder.getRoot().toPath().resolve("cli.tsv");
+        Path in = folder.getRoot().toPath().resolve("sentences.txt");
+        List<String> sentences = Files.readAllLines(java.nio.file.Paths.get("data", "sentences-test.txt"),
+                StandardCharsets.UTF_8).subList(0, 20);
+        Files.write(in, sentences, StandardCharsets.UTF_8);
+        for (int run = 0; run < 2; run++) {
+            ClausIE.main(new String[]{"-l", "-f", in.toString(), "-o", out.toString(), "--timeout", "20",
+                    "--cache", cache.toString()});
+            // every sentence has been written, with propositions or as timeout
+            Set<String> ids = new HashSet<>();
+            for (String line : Files.readAllLines(out, StandardCharsets.UTF_8)) {
+                ids.add(line.substring(0, line.indexOf('\t')));
+            }
+            assertEquals(sentences.size(), ids.size());
+        }
+    }
+
+    @Test
+    public void sentencesAfterInterruptAreCached() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("parses.bin");
+        FixedProvider provider = new FixedProvider(SENTENCE_1, SENTENCE_3);
+        try (ParseCache cache = ParseCache.open(path, provider)) {
+            provider.interrupt = true;
+            cache.parse(cache.tokenize(text(SENTENCE_1)));
+            Thread.interrupted();
+            provider.interrupt = false;
+            cache.parse(cache.tokenize(text(SENTENCE_3)));
+            cache.parse(cache.tokenize(text(SENTENCE_3)));
+            assertEquals(2, provider.parsed);
+            assertEquals(2, cache.size());
+        }
+    }
+
+    @Test
+    public void engineReportsAndResetsCacheStatistics() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("parses.bin");
+        String sentence = TestParses.SENTENCES.get(0);
+        try (ParseCache cache = ParseCache.open(path, new CountingProvider());
+             ClausIEEngine engine = new ClausIEEngine(new Options(), cache)) {
+            engine.extract(sentence);
+            engine.extract(sentence);
+            String name = "cache(" + TestParses.pcfg().getName() + ")";
+            assertTrue(engine.getParseReport(), engine.getParseReport().startsWith(name + ": 2 sentences"));
+            assertTrue(cache.getReport(), cache.getReport().contains(": 1 hits, 1 misses"));
+            engine.resetStatistics();
+            assertTrue(engine.getParseReport(), engine.getParseReport().startsWith(name + ": 0 sentences"));
+            assertTrue(cache.getReport(), cache.getReport().contains(": 0 hits, 0 misses"));
+            assertEquals(1, cache.size());
+        }
+    }
+}
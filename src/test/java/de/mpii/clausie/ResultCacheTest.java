@@ -0,0 +1,95 @@
+package de.mpii.clausie;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ResultCacheTest {
+
+    private static ExtractionResult result(String sentence) {
+        return new ExtractionResult(null, ExtractionResult.Status.OK, sentence, null, null,
+                Collections.<Clause>emptyList(), Collections.<Proposition>emptyList(), Double.NaN);
+    }
+
+    @Test
+    public void resultsAreSeparatedByFingerprint() {
+        ResultCache cache = new ResultCache(100);
+        ExtractionResult first = result("He sleeps.");
+        ExtractionResult second = result("He sleeps.");
+        cache.put(1, "He sleeps.", first);
+        cache.put(2, "He sleeps.", second);
+        assertSame(first, cache.get(1, "He sleeps."));
+        assertSame(second, cache.get(2, "He sleeps."));
+        assertNull(cache.get(3, "He sleeps."));
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void sentencesAreNormalized() {
+        ResultCache cache = new ResultCache(100);
+        ExtractionResult result = result("Caf\u00e9  is\topen.");
+        cache.put(1, " Cafe\u0301  is\topen. ", result);
+        assertSame(result, cache.get(1, "Caf\u00e9 is open."));
+        assertNull(cache.get(1, "Caf\u00e9 is open"));
+    }
+
+    @Test
+    public void incompleteResultsAreNotCached() {
+        ResultCache cache = new ResultCache(100);
+        cache.put(1, "He sleeps.", ExtractionResult.timeout(null, "He sleeps."));
+        cache.put(1, "He sleeps.", ExtractionResult.tooLong(null, "He sleeps."));
+        assertNull(cache.get(1, "He sleeps."));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void leastRecentlyUsedResultIsEvicted() {
+        ResultCache cache = new ResultCache(1);
+        ExtractionResult first = result("first");
+        cache.put(1, "first", first);
+        cache.put(1, "second", result("second"));
+        assertNull(cache.get(1, "first"));
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void segmentsEvictTheirOwnResults() {
+        // 16 segments that hold two results each
+        ResultCache cache = new ResultCache(32);
+        ExtractionResult kept = result("kept");
+        cache.put(1, "kept", kept);
+        int n = 1000;
+        for (int i = 0; i < n; i++) {
+            cache.put(1, "sentence " + i, result("sentence " + i));
+            assertSame(kept, cache.get(1, "kept"));
+            assertEquals(i + 2 - cache.getEvictions(), cache.size());
+        }
+        // by now, every segment is full
+        assertEquals(32, cache.size());
+        assertEquals(n + 1 - 32, cache.getEvictions());
+        assertEquals(32, cache.getCapacity());
+    }
+
+    @Test
+    public void segmentCapacitiesAddUp() {
+        for (int capacity : new int[]{1, 2, 3, 17, 100}) {
+            ResultCache cache = new ResultCache(capacity);
+            for (int i = 0; i < 100 * capacity; i++) {
+                cache.put(1, "sentence " + i, result("sentence " + i));
+            }
+            assertEquals(capacity, cache.size());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacityMustBePositive() {
+        new ResultCache(0);
+    }
+}
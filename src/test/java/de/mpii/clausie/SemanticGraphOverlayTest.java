@@ -0,0 +1,132 @@
+package de.mpii.clausie;
+
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.semgraph.SemanticGraphEdge;
+import edu.stanford.nlp.trees.UniversalEnglishGrammaticalRelations;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares {@link SemanticGraphOverlay} with {@link SemanticGraph} on parsed sentences.
+ */
+public class SemanticGraphOverlayTest {
+
+    @Test
+    public void unmodifiedOverlayMatchesGraph() {
+        for (String sentence : TestParses.SENTENCES) {
+            SemanticGraph graph = TestParses.parse(sentence).getSemanticGraph();
+            SemanticGraphOverlay overlay = new SemanticGraphOverlay(graph);
+            assertFalse(overlay.isModified());
+            assertSame(graph, overlay.toSemanticGraph());
+            for (IndexedWord vertex : graph.vertexSet()) {
+                // same edges in the same order
+                assertEquals(sentence, graph.outgoingEdgeList(vertex), overlay.outgoingEdgeList(vertex));
+                assertMatches(sentence, graph, overlay, vertex);
+            }
+        }
+    }
+
+    @Test
+    public void modifiedOverlayMatchesModifiedGraph() {
+        for (String sentence : TestParses.SENTENCES) {
+            SemanticGraph graph = TestParses.parse(sentence).getSemanticGraph();
+            SemanticGraph expected = new SemanticGraph(graph);
+            SemanticGraphOverlay overlay = new SemanticGraphOverlay(graph);
+            modify(graph, expected, overlay);
+            assertTrue(overlay.isModified());
+            assertEquals(sentence, expected.edgeListSorted(), overlay.toSemanticGraph().edgeListSorted());
+            for (IndexedWord vertex : expected.vertexSet()) {
+                // the order of the added edges is not kept by SemanticGraph
+                assertEquals(sentence, sorted(expected.outgoingEdgeList(vertex)),
+                        sorted(overlay.outgoingEdgeList(vertex)));
+                assertMatches(sentence, expected, overlay, vertex);
+            }
+        }
+    }
+
+    @Test
+    public void copyIsIndependent() {
+        SemanticGraph graph = TestParses.parse(TestParses.SENTENCES.get(4)).getSemanticGraph();
+        SemanticGraphOverlay overlay = new SemanticGraphOverlay(graph);
+        SemanticGraphOverlay copy = overlay.copy();
+        IndexedWord root = graph.getFirstRoot();
+        SemanticGraphEdge edge = graph.outgoingEdgeList(root).get(0);
+        assertTrue(copy.removeEdge(edge));
+        assertFalse(copy.removeEdge(edge));
+        copy.addEdge(edge.getDependent(), root, edge.getRelation(), edge.getWeight(), edge.isExtra());
+
+        assertFalse(overlay.isModified());
+        assertSame(edge, overlay.getEdge(root, edge.getDependent()));
+        assertNull(overlay.getEdge(edge.getDependent(), root));
+        assertNull(copy.getEdge(root, edge.getDependent()));
+        assertEquals(edge.getRelation(), copy.reln(edge.getDependent(), root));
+
+        SemanticGraphOverlay copyOfCopy = copy.copy();
+        copyOfCopy.removeEdge(copy.getEdge(edge.getDependent(), root));
+        assertEquals(edge.getRelation(), copy.reln(edge.getDependent(), root));
+        assertNull(copyOfCopy.getEdge(edge.getDependent(), root));
+        assertEquals(graph.edgeCount() - 1, copyOfCopy.toSemanticGraph().edgeCount());
+    }
+
+    /**
+     * Removes every third edge of a graph and attaches the dependent to the root instead, and
+     * adds a copy of the root, as done when processing coordinating conjunctions.
+     */
+    private static void modify(SemanticGraph graph,
+                               SemanticGraph expected,
+                               SemanticGraphOverlay overlay) {
+        IndexedWord root = graph.getFirstRoot();
+        List<SemanticGraphEdge> edges = graph.edgeListSorted();
+        for (int i = 0; i < edges.size(); i += 3) {
+            SemanticGraphEdge edge = edges.get(i);
+            assertTrue(expected.removeEdge(edge));
+            assertTrue(overlay.removeEdge(edge));
+            if (!edge.getGovernor().equals(root) && !edge.getDependent().equals(root)) {
+                expected.addEdge(root, edge.getDependent(), edge.getRelation(), edge.getWeight(), edge.isExtra());
+                overlay.addEdge(root, edge.getDependent(), edge.getRelation(), edge.getWeight(), edge.isExtra());
+            }
+        }
+        IndexedWord copy = root.makeCopy(1);
+        IndexedWord child = edges.get(edges.size() - 1).getDependent();
+        expected.addEdge(root, copy, UniversalEnglishGrammaticalRelations.CONJUNCT, 1, false);
+        overlay.addEdge(root, copy, UniversalEnglishGrammaticalRelations.CONJUNCT, 1, false);
+        expected.addEdge(copy, child, UniversalEnglishGrammaticalRelations.DIRECT_OBJECT, 1, false);
+        overlay.addEdge(copy, child, UniversalEnglishGrammaticalRelations.DIRECT_OBJECT, 1, false);
+    }
+
+    private static void assertMatches(String sentence,
+                                      SemanticGraph graph,
+                                      SemanticGraphOverlay overlay,
+                                      IndexedWord vertex) {
+        String message = sentence + " / " + vertex;
+        assertEquals(message, graph.getOutEdgesSorted(vertex), overlay.getOutEdgesSorted(vertex));
+        assertEquals(message, graph.getIncomingEdgesSorted(vertex), overlay.getIncomingEdgesSorted(vertex));
+        assertEquals(message, graph.getChildren(vertex), overlay.getChildren(vertex));
+        assertEquals(message, graph.getParents(vertex), overlay.getParents(vertex));
+        assertEquals(message, graph.getParentList(vertex), overlay.getParentList(vertex));
+        assertEquals(message, graph.hasChildren(vertex), overlay.hasChildren(vertex));
+        assertEquals(message, graph.getParent(vertex), overlay.getParent(vertex));
+        assertEquals(message, new HashSet<>(graph.getSiblings(vertex)), new HashSet<>(overlay.getSiblings(vertex)));
+        assertEquals(message, graph.descendants(vertex), overlay.descendants(vertex));
+        for (IndexedWord other : graph.vertexSet()) {
+            assertEquals(message, graph.getEdge(vertex, other), overlay.getEdge(vertex, other));
+        }
+    }
+
+    private static List<SemanticGraphEdge> sorted(List<SemanticGraphEdge> edges) {
+        List<SemanticGraphEdge> result = new ArrayList<>(edges);
+        Collections.sort(result);
+        return result;
+    }
+}
@@ -0,0 +1,111 @@
+package de.mpii.clausie;
+
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.semgraph.SemanticGraphEdge;
+import edu.stanford.nlp.trees.UniversalEnglishGrammaticalRelations;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Compares {@link SentenceGraph} with the {@link SemanticGraph} it is built from.
+ */
+public class SentenceGraphTest {
+
+    @Test
+    public void edgesMatchGraph() {
+        for (String sentence : TestParses.SENTENCES) {
+            assertMatches(sentence, TestParses.parse(sentence).getSemanticGraph());
+        }
+    }
+
+    @Test
+    public void edgesMatchGraphWithCopyNodes() {
+        for (String sentence : TestParses.SENTENCES) {
+            SemanticGraph graph = new SemanticGraph(TestParses.parse(sentence).getSemanticGraph());
+            IndexedWord root = graph.getFirstRoot();
+            IndexedWord copy = root.makeCopy(1);
+            graph.addEdge(root, copy, UniversalEnglishGrammaticalRelations.CONJUNCT, 1, false);
+            for (IndexedWord child : new ArrayList<>(graph.getChildList(root))) {
+                graph.addEdge(copy, child, UniversalEnglishGrammaticalRelations.DIRECT_OBJECT, 1, false);
+            }
+            assertMatches(sentence, graph);
+
+            SentenceGraph sentenceGraph = new SentenceGraph(graph);
+            int v = sentenceGraph.id(copy);
+            assertEquals(copy, sentenceGraph.vertex(v));
+            assertEquals(-1, sentenceGraph.tokenIndex(copy));
+            assertEquals(root.index(), sentenceGraph.tokenIndex(root));
+            assertEquals(root, sentenceGraph.vertexAt(root.index()));
+        }
+    }
+
+    @Test
+    public void unknownVertexes() {
+        SemanticGraph graph = TestParses.parse(TestParses.SENTENCES.get(0)).getSemanticGraph();
+        SentenceGraph sentenceGraph = new SentenceGraph(graph);
+        IndexedWord root = graph.getFirstRoot();
+        assertEquals(-1, sentenceGraph.id(root.makeCopy(1)));
+        assertEquals(-1, sentenceGraph.id(new IndexedWord("doc", 0, 100)));
+        assertNull(sentenceGraph.vertexAt(100));
+        assertNull(sentenceGraph.getNodeByIndexSafe(100));
+    }
+
+    private static void assertMatches(String sentence,
+                                      SemanticGraph graph) {
+        SentenceGraph sentenceGraph = new SentenceGraph(graph);
+        assertEquals(sentence, graph.size(), sentenceGraph.size());
+        assertEquals(sentence, graph.edgeCount(), sentenceGraph.edgeCount());
+
+        // all edges in the order of the graph
+        List<SemanticGraphEdge> edges = new ArrayList<>();
+        for (int e = 0; e < sentenceGraph.edgeCount(); e++) {
+            SemanticGraphEdge edge = sentenceGraph.edge(e);
+            edges.add(edge);
+            assertEquals(sentence, edge.getGovernor(), sentenceGraph.vertex(sentenceGraph.governor(e)));
+            assertEquals(sentence, edge.getDependent(), sentenceGraph.vertex(sentenceGraph.dependent(e)));
+            assertEquals(sentence, DpUtils.relation(edge), sentenceGraph.relation(e));
+        }
+        List<SemanticGraphEdge> expected = new ArrayList<>();
+        for (SemanticGraphEdge edge : graph.edgeIterable()) {
+            expected.add(edge);
+        }
+        assertEquals(sentence, expected, edges);
+
+        int v = 0;
+        for (IndexedWord vertex : graph.vertexSet()) {
+            String message = sentence + " / " + vertex;
+            assertEquals(message, v, sentenceGraph.id(vertex));
+            assertSame(message, vertex, sentenceGraph.vertex(v));
+            assertEquals(message, graph.getRoots().contains(vertex), sentenceGraph.isRoot(v));
+            assertEquals(message, graph.getNodeByIndexSafe(vertex.index()),
+                    sentenceGraph.getNodeByIndexSafe(vertex.index()));
+            assertEquals(message, graph.outgoingEdgeList(vertex),
+                    edges(sentenceGraph, sentenceGraph.outStart(v), sentenceGraph.outStart(v + 1), false, true));
+            assertEquals(message, graph.getOutEdgesSorted(vertex),
+                    edges(sentenceGraph, sentenceGraph.outStart(v), sentenceGraph.outStart(v + 1), true, true));
+            assertEquals(message, graph.getIncomingEdgesSorted(vertex),
+                    edges(sentenceGraph, sentenceGraph.inStart(v), sentenceGraph.inStart(v + 1), true, false));
+            v++;
+        }
+    }
+
+    private static List<SemanticGraphEdge> edges(SentenceGraph sentenceGraph,
+                                                 int from,
+                                                 int to,
+                                                 boolean sorted,
+                                                 boolean outgoing) {
+        List<SemanticGraphEdge> result = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            int e = !sorted ? i : outgoing ? sentenceGraph.outSorted(i) : sentenceGraph.inSorted(i);
+            result.add(sentenceGraph.edge(e));
+        }
+        return result;
+    }
+}
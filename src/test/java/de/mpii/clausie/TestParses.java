@@ -0,0 +1,72 @@
+package de.mpii.clausie;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parses for tests: sentences given in a compact dependency notation, and sentences parsed by the
+ * PCFG parser (loaded once per JVM).
+ */
+final class TestParses {
+
+    /**
+     * Sentences with coordinations, relative clauses, xcomps and adverbial clauses.
+     */
+    static final List<String> SENTENCES = Arrays.asList(
+            "It does not work.",
+            "If he studies hard, he will pass the exam.",
+            "He was required to say whether he wants to join.",
+            "He is smart and fat but he does not want to play football.",
+            "He eats a sweet cake and drinks hot chocolate.",
+            "Bell, a telecommunication company, which is based in Los Angeles, makes and distributes "
+                    + "electronic, computer and building products.",
+            "The man who I saw yesterday gave the book to his sister and her friend.");
+
+    private static PcfgDependencyProvider pcfg;
+
+    private TestParses() {
+    }
+
+    /**
+     * Returns the parse of a sentence given as tokens of form {@code word/tag/head/relation},
+     * separated by spaces, where {@code head} is the index of the governor (0 for the root).
+     * Punctuation is given as {@code word/tag}.
+     */
+    static DependencyParse dependencies(String sentence) {
+        StringBuilder conllu = new StringBuilder();
+        String[] tokens = sentence.split(" ");
+        for (int i = 0; i < tokens.length; i++) {
+            String[] fields = tokens[i].split("/");
+            conllu.append(i + 1).append('\t').append(fields[0]).append("\t_\t_\t").append(fields[1])
+                    .append("\t_\t").append(fields.length > 2 ? fields[2] : "_")
+                    .append('\t').append(fields.length > 3 ? fields[3] : "_").append("\t_\t_\n");
+        }
+        try (ConllUReader reader = new ConllUReader(LineSource.of(
+                new ByteArrayInputStream(conllu.toString().getBytes(StandardCharsets.UTF_8))))) {
+            return reader.next().getParse();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the PCFG parser with the default model.
+     */
+    static synchronized PcfgDependencyProvider pcfg() {
+        if (pcfg == null) {
+            pcfg = new PcfgDependencyProvider();
+        }
+        return pcfg;
+    }
+
+    /**
+     * Parses a sentence with the PCFG parser.
+     */
+    static DependencyParse parse(String sentence) {
+        return pcfg().parse(pcfg().tokenize(sentence));
+    }
+}
@@ -0,0 +1,123 @@
+package de.mpii.clausie;
+
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.trees.UniversalEnglishGrammaticalRelations;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares {@link VertexSet} with the {@link TreeSet} it replaces.
+ */
+public class VertexSetTest {
+
+    @Test
+    public void matchesTreeSet() {
+        Random random = new Random(42);
+        for (String sentence : TestParses.SENTENCES) {
+            List<IndexedWord> vertexes = vertexes(sentence);
+            SentenceGraph table = graph(vertexes);
+            VertexSet set = new VertexSet(table);
+            TreeSet<IndexedWord> expected = new TreeSet<>();
+            for (int i = 0; i < 200; i++) {
+                IndexedWord vertex = vertexes.get(random.nextInt(vertexes.size()));
+                if (random.nextInt(3) == 0) {
+                    assertEquals(sentence, expected.remove(vertex), set.remove(vertex));
+                } else {
+                    assertEquals(sentence, expected.add(vertex), set.add(vertex));
+                }
+                assertMatches(sentence, expected, set, vertexes);
+            }
+        }
+    }
+
+    @Test
+    public void iteratorRemovesVertexes() {
+        List<IndexedWord> vertexes = vertexes(TestParses.SENTENCES.get(5));
+        VertexSet set = new VertexSet(graph(vertexes), vertexes);
+        TreeSet<IndexedWord> expected = new TreeSet<>(vertexes);
+        Iterator<IndexedWord> it = set.iterator();
+        Iterator<IndexedWord> expectedIt = expected.iterator();
+        for (int i = 0; it.hasNext(); i++) {
+            assertEquals(expectedIt.next(), it.next());
+            if (i % 2 == 0) {
+                it.remove();
+                expectedIt.remove();
+            }
+        }
+        assertFalse(expectedIt.hasNext());
+        assertMatches("", expected, set, vertexes);
+    }
+
+    @Test
+    public void copiesAndUnionsAreIndependent() {
+        List<IndexedWord> vertexes = vertexes(TestParses.SENTENCES.get(6));
+        SentenceGraph table = graph(vertexes);
+        VertexSet first = new VertexSet(table, vertexes.subList(0, vertexes.size() / 2));
+        VertexSet second = new VertexSet(table, vertexes.subList(vertexes.size() / 3, vertexes.size()));
+        VertexSet copy = new VertexSet(first);
+        assertTrue(copy.addAll(second));
+        assertFalse(copy.addAll(second));
+        assertEquals(new TreeSet<>(vertexes), new TreeSet<>(copy));
+        assertEquals(new ArrayList<>(new TreeSet<>(vertexes)), new ArrayList<>(copy));
+        assertEquals(new TreeSet<>(vertexes.subList(0, vertexes.size() / 2)), first);
+
+        copy.clear();
+        assertTrue(copy.isEmpty());
+        assertEquals(vertexes.size() / 2, first.size());
+
+        // sets without a graph keep all vertexes in sorted order
+        VertexSet untabled = new VertexSet((SentenceGraph) null, vertexes);
+        assertEquals(new ArrayList<>(new TreeSet<>(vertexes)), new ArrayList<>(untabled));
+    }
+
+    /**
+     * Returns the vertexes of a parsed sentence, copy nodes of the first and last vertex, and a
+     * vertex that is not part of the graph.
+     */
+    private static List<IndexedWord> vertexes(String sentence) {
+        SemanticGraph graph = new SemanticGraph(TestParses.parse(sentence).getSemanticGraph());
+        IndexedWord root = graph.getFirstRoot();
+        List<IndexedWord> words = new ArrayList<>(graph.vertexListSorted());
+        graph.addEdge(root, words.get(0).makeCopy(1), UniversalEnglishGrammaticalRelations.CONJUNCT, 1, false);
+        graph.addEdge(root, words.get(words.size() - 1).makeCopy(2), UniversalEnglishGrammaticalRelations.CONJUNCT,
+                1, false);
+        List<IndexedWord> result = new ArrayList<>(graph.vertexSet());
+        result.add(new IndexedWord(root.docID(), root.sentIndex(), words.get(words.size() - 1).index() + 5));
+        return result;
+    }
+
+    /**
+     * Returns the graph of the vertexes returned by {@link #vertexes(String)}.
+     */
+    private static SentenceGraph graph(List<IndexedWord> vertexes) {
+        SemanticGraph graph = new SemanticGraph();
+        for (IndexedWord vertex : vertexes.subList(0, vertexes.size() - 1)) {
+            graph.addVertex(vertex);
+        }
+        return new SentenceGraph(graph);
+    }
+
+    private static void assertMatches(String sentence,
+                                      TreeSet<IndexedWord> expected,
+                                      VertexSet set,
+                                      List<IndexedWord> vertexes) {
+        assertEquals(sentence, expected.size(), set.size());
+        assertEquals(sentence, expected.isEmpty(), set.isEmpty());
+        assertEquals(sentence, new ArrayList<>(expected), new ArrayList<>(set));
+        assertEquals(sentence, expected, set);
+        assertEquals(sentence, expected.hashCode(), set.hashCode());
+        for (IndexedWord vertex : vertexes) {
+            assertEquals(sentence, expected.contains(vertex), set.contains(vertex));
+        }
+    }
+}